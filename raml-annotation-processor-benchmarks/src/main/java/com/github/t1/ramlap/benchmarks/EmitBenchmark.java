@@ -0,0 +1,51 @@
+package com.github.t1.ramlap.benchmarks;
+
+import com.github.t1.exap.reflection.Type;
+import com.github.t1.ramlap.StreamingRamlEmitter;
+import com.github.t1.ramlap.scanner.RamlScanner;
+import org.openjdk.jmh.annotations.*;
+import org.raml.emitter.RamlEmitter;
+import org.raml.model.Raml;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emits the RAML of a scanned {@link SyntheticApi}: dumped into one string, and streamed into a digest, i.e. chunk by
+ * chunk and without I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EmitBenchmark {
+    @Param({ "10", "100" })
+    public int resources;
+
+    @Param("10")
+    public int methods;
+
+    @Param("3")
+    public int depth;
+
+    private Raml raml;
+
+    @Setup
+    public void setup() {
+        RamlScanner scanner = new RamlScanner();
+        for (Type type : new SyntheticApi(resources, methods, depth).compile().getResources())
+            scanner.scanJaxRsType(type);
+        raml = scanner.getResult();
+    }
+
+    @Benchmark
+    public String dump() {
+        return new RamlEmitter().dump(raml);
+    }
+
+    @Benchmark
+    public byte[] stream() {
+        return new StreamingRamlEmitter().digest(raml);
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.t1.ramlap.benchmarks;
+
+import com.github.t1.exap.reflection.Type;
+import com.github.t1.ramlap.scanner.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the schemas and examples of the root DTO of a {@link SyntheticApi} resource, i.e. the whole DTO graph, each
+ * time from scratch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class GeneratorBenchmark {
+    @Param({ "1", "3", "10" })
+    public int depth;
+
+    private Type dto;
+
+    @Setup
+    public void setup() {
+        dto = new SyntheticApi(1, 1, depth).compile().getDto(0, 0);
+    }
+
+    @Benchmark
+    public String jsonSchema() {
+        return SchemaGenerator.schema(dto, "application/json");
+    }
+
+    @Benchmark
+    public String xmlSchema() {
+        return SchemaGenerator.schema(dto, "application/xml");
+    }
+
+    @Benchmark
+    public String jsonExample() {
+        return ExampleGenerator.example(dto, "application/json");
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.t1.ramlap.benchmarks;
+
+import com.github.t1.exap.reflection.Type;
+import com.github.t1.ramlap.scanner.RamlScanner;
+import org.openjdk.jmh.annotations.*;
+import org.raml.model.Raml;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans a {@link SyntheticApi} with 1 to N threads generating the schemas and examples, to see how the
+ * {@link RamlScanner#parallelism(int) parallelism} scales with the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParallelScanBenchmark {
+    @Param({ "1", "2", "4", "8" })
+    public int parallelism;
+
+    @Param("100")
+    public int resources;
+
+    @Param("10")
+    public int methods;
+
+    @Param("3")
+    public int depth;
+
+    private List<Type> types;
+
+    @Setup
+    public void setup() {
+        types = new SyntheticApi(resources, methods, depth).compile().getResources();
+    }
+
+    @Benchmark
+    public Raml scan() {
+        RamlScanner scanner = new RamlScanner().parallelism(parallelism);
+        for (Type type : types)
+            scanner.scanJaxRsType(type);
+        return scanner.getResult();
+    }
+}
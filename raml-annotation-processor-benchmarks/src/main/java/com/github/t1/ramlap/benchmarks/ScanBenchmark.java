@@ -0,0 +1,47 @@
+package com.github.t1.ramlap.benchmarks;
+
+import com.github.t1.exap.reflection.Type;
+import com.github.t1.ramlap.scanner.RamlScanner;
+import org.openjdk.jmh.annotations.*;
+import org.raml.model.Raml;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Scans all resources of a {@link SyntheticApi} into a new {@link RamlScanner}, including the schemas and examples */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ScanBenchmark {
+    @Param({ "10", "100" })
+    public int resources;
+
+    @Param("10")
+    public int methods;
+
+    @Param("3")
+    public int depth;
+
+    @Param({ "false", "true" })
+    public boolean rootSchemas;
+
+    private List<Type> types;
+
+    @Setup
+    public void setup() {
+        types = new SyntheticApi(resources, methods, depth).compile().getResources();
+    }
+
+    @Benchmark
+    public Raml scan() {
+        RamlScanner scanner = new RamlScanner();
+        if (rootSchemas)
+            scanner.rootSchemas();
+        for (Type type : types)
+            scanner.scanJaxRsType(type);
+        return scanner.getResult();
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.t1.ramlap.benchmarks;
+
+import com.github.t1.exap.reflection.Type;
+
+import javax.tools.*;
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static com.github.t1.exap.reflection.ReflectionProcessingEnvironment.*;
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.*;
+
+/**
+ * Generates the sources of a JAX-RS API with a number of resources, each with a number of methods, and a graph of DTOs
+ * of some depth for each resource, compiles them, and loads them, so they can be scanned with the reflection based
+ * {@link Type} model.
+ * <p>
+ * Each DTO has some scalar fields, an enum, a nested DTO of the next level (if there is one), and a reference to a DTO
+ * shared by all resources, so the caches have something to hit. The resources return single DTOs and lists of DTOs;
+ * the DTOs have no lists of DTOs, as the example generator doesn't support them in fields, yet. The classes are
+ * loaded by a separate class loader, so the XML schemas are not generated with JAXB, but from the type model.
+ */
+public class SyntheticApi {
+    static final String PACKAGE = "synthetic";
+
+    private final int resources;
+    private final int methods;
+    private final int depth;
+    private ClassLoader loader;
+
+    /**
+     * @param resources the number of JAX-RS resource classes
+     * @param methods the number of methods of each resource
+     * @param depth the number of levels of the DTO graph of each resource
+     */
+    public SyntheticApi(int resources, int methods, int depth) {
+        if (resources < 1 || methods < 1 || depth < 1)
+            throw new IllegalArgumentException("resources, methods, and depth must be positive");
+        this.resources = resources;
+        this.methods = methods;
+        this.depth = depth;
+    }
+
+    /** The simple class names and source code of all classes */
+    public Map<String, String> sources() {
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("Kind", "public enum Kind { ALPHA, BETA, GAMMA }\n");
+        sources.put("Shared", ""
+                + "public class Shared {\n"
+                + "    public String id;\n"
+                + "    public long version;\n"
+                + "    public java.util.List<String> tags;\n"
+                + "}\n");
+        for (int r = 0; r < resources; r++) {
+            for (int level = 0; level < depth; level++)
+                sources.put(dto(r, level), dtoSource(r, level));
+            sources.put(resource(r), resourceSource(r));
+        }
+        return sources;
+    }
+
+    private String resource(int r) {
+        return "Resource" + r;
+    }
+
+    private String dto(int r, int level) {
+        return "Dto" + r + "x" + level;
+    }
+
+    private String dtoSource(int r, int level) {
+        StringBuilder out = new StringBuilder();
+        out.append("public class ").append(dto(r, level)).append(" {\n");
+        out.append("    public String name;\n");
+        out.append("    public int count;\n");
+        out.append("    public boolean active;\n");
+        out.append("    public double amount;\n");
+        out.append("    public Kind kind;\n");
+        out.append("    public Shared shared;\n");
+        if (level + 1 < depth)
+            out.append("    public ").append(dto(r, level + 1)).append(" child;\n");
+        return out.append("}\n").toString();
+    }
+
+    private String resourceSource(int r) {
+        String dto = dto(r, 0);
+        StringBuilder out = new StringBuilder();
+        out.append("import javax.ws.rs.*;\n");
+        out.append("import java.util.List;\n");
+        out.append("\n");
+        out.append("@Path(\"/resource").append(r).append("\")\n");
+        out.append("public class ").append(resource(r)).append(" {\n");
+        for (int m = 0; m < methods; m++) {
+            int kind = m % 5;
+            out.append("    @Path(\"/m").append(m).append((kind == 3) ? "/{id}" : "").append("\")\n");
+            switch (kind) {
+            case 0:
+                out.append("    @GET @Produces({ \"application/json\", \"application/xml\" })\n");
+                out.append("    public ").append(dto).append(" get").append(m).append("() { return null; }\n");
+                break;
+            case 1:
+                out.append("    @GET @Produces(\"application/json\")\n");
+                out.append("    public List<").append(dto).append("> list").append(m)
+                        .append("(@QueryParam(\"limit\") int limit) { return null; }\n");
+                break;
+            case 2:
+                out.append("    @POST @Consumes(\"application/json\")\n");
+                out.append("    public void post").append(m).append("(").append(dto).append(" body) {}\n");
+                break;
+            case 3:
+                out.append("    @PUT @Consumes(\"application/json\")\n");
+                out.append("    public void put").append(m).append("(@PathParam(\"id\") String id, ").append(dto)
+                        .append(" body) {}\n");
+                break;
+            default:
+                out.append("    @DELETE\n");
+                out.append("    public void delete").append(m)
+                        .append("(@HeaderParam(\"If-Match\") String etag) {}\n");
+            }
+        }
+        return out.append("}\n").toString();
+    }
+
+    /** Compile the classes into a temporary directory, so they can be loaded */
+    public SyntheticApi compile() {
+        try {
+            Path dir = Files.createTempDirectory("synthetic-api");
+            compile(dir, writeSources(dir));
+            this.loader = new URLClassLoader(new URL[] { dir.toUri().toURL() }, getClass().getClassLoader());
+            return this;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** The types of the JAX-RS resources */
+    public List<Type> getResources() {
+        List<Type> types = new ArrayList<>();
+        for (int r = 0; r < resources; r++)
+            types.add(type(resource(r)));
+        return types;
+    }
+
+    /** The type of the DTO of that resource at that level; level 0 is the root of the graph */
+    public Type getDto(int resource, int level) {
+        return type(dto(resource, level));
+    }
+
+    private Type type(String simpleName) {
+        if (loader == null)
+            throw new IllegalStateException("not yet compiled");
+        try {
+            return ENV.type(loader.loadClass(PACKAGE + "." + simpleName));
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<File> writeSources(Path dir) throws IOException {
+        Path packageDir = Files.createDirectories(dir.resolve(PACKAGE));
+        List<File> files = new ArrayList<>();
+        for (Map.Entry<String, String> source : sources().entrySet()) {
+            Path file = packageDir.resolve(source.getKey() + ".java");
+            Files.write(file, ("package " + PACKAGE + ";\n\n" + source.getValue()).getBytes(UTF_8));
+            files.add(file.toFile());
+        }
+        return files;
+    }
+
+    private void compile(Path dir, List<File> files) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+            throw new IllegalStateException("no java compiler available; run on a JDK");
+        StringWriter messages = new StringWriter();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, UTF_8)) {
+            // no annotation processing: the RAML processor is on the class path
+            List<String> options = asList("-proc:none", "-nowarn", "-d", dir.toString(),
+                    "-classpath", System.getProperty("java.class.path"));
+            boolean success = compiler.getTask(messages, fileManager, null, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(files)).call();
+            if (!success)
+                throw new IllegalStateException("can't compile synthetic api:\n" + messages);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SyntheticApi(" + resources + " resources x " + methods + " methods, dto depth " + depth + ")";
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.t1.ramlap.benchmarks;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class SyntheticApiTest {
+    @Test
+    public void shouldGenerateAllClasses() {
+        Map<String, String> sources = new SyntheticApi(3, 5, 2).sources();
+
+        assertThat(sources.keySet()).containsExactly("Kind", "Shared",
+                "Dto0x0", "Dto0x1", "Resource0",
+                "Dto1x0", "Dto1x1", "Resource1",
+                "Dto2x0", "Dto2x1", "Resource2");
+    }
+
+    @Test
+    public void shouldNestDtosUpToDepth() {
+        Map<String, String> sources = new SyntheticApi(1, 1, 2).sources();
+
+        assertThat(sources.get("Dto0x0")).contains("public Dto0x1 child;", "public Shared shared;");
+        assertThat(sources.get("Dto0x1")).doesNotContain("child");
+    }
+
+    @Test
+    public void shouldGenerateMethods() {
+        String resource = new SyntheticApi(1, 5, 1).sources().get("Resource0");
+
+        assertThat(resource)
+                .contains("@Path(\"/resource0\")")
+                .contains("public Dto0x0 get0()")
+                .contains("public List<Dto0x0> list1(@QueryParam(\"limit\") int limit)")
+                .contains("public void post2(Dto0x0 body)")
+                .contains("@Path(\"/m3/{id}\")")
+                .contains("public void put3(@PathParam(\"id\") String id, Dto0x0 body)")
+                .contains("public void delete4(@HeaderParam(\"If-Match\") String etag)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectEmptyApi() {
+        new SyntheticApi(0, 1, 1);
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.t1.ramlap.parsed;
+
+import com.github.t1.ramlap.RamlAnnotationProcessor;
+import io.swagger.annotations.ApiOperation;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.*;
+import javax.ws.rs.Path;
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static java.util.stream.Collectors.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class IncrementalProcessorIntegrationTest {
+    private static final String GRADLE_PROCESSORS = "META-INF/gradle/incremental.annotation.processors";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<String> gradleProcessors() throws IOException {
+        List<String> lines = new ArrayList<>();
+        Enumeration<URL> resources = getClass().getClassLoader().getResources(GRADLE_PROCESSORS);
+        while (resources.hasMoreElements())
+            try (BufferedReader reader =
+                    new BufferedReader(new InputStreamReader(resources.nextElement().openStream(), UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null)
+                    lines.add(line);
+            }
+        return lines;
+    }
+
+    @Test
+    public void shouldDeclareAggregatingProcessor() throws Exception {
+        assertThat(gradleProcessors()).contains(RamlAnnotationProcessor.class.getName() + ",aggregating");
+    }
+
+    /**
+     * Like Gradle does for an aggregating processor: only the changed source is compiled again, but the unchanged
+     * types are passed by name, so they are processed, too, and the RAML is rebuilt from all of them.
+     */
+    @Test
+    public void shouldRebuildFromAllOriginatingElementsWhenOneSourceChanges() throws Exception {
+        File sources = folder.newFolder("sources");
+        File output = folder.newFolder("output");
+        File foo = write(sources, "FooResource", "@javax.ws.rs.Path(\"/foo\")\n"
+                + "public class FooResource {\n"
+                + "    @javax.ws.rs.GET public String get() { return null; }\n"
+                + "}\n");
+        File bar = write(sources, "BarResource", "@javax.ws.rs.Path(\"/bar\")\n"
+                + "public class BarResource {\n"
+                + "    @javax.ws.rs.GET public String get() { return null; }\n"
+                + "}\n");
+
+        compile(output, asList(foo, bar), emptyList());
+        String first = raml(output);
+
+        write(sources, "FooResource", "@javax.ws.rs.Path(\"/foo\")\n"
+                + "public class FooResource {\n"
+                + "    @javax.ws.rs.GET public String get() { return null; }\n"
+                + "    @javax.ws.rs.GET @javax.ws.rs.Path(\"/changed\") public String changed() { return null; }\n"
+                + "}\n");
+        compile(output, singletonList(foo), singletonList("incremental.BarResource"));
+        String second = raml(output);
+
+        assertThat(first).contains("/foo:", "/bar:").doesNotContain("/changed:");
+        assertThat(second).contains("/foo:", "/changed:", "/bar:");
+    }
+
+    /** The digests of the existing files are calculated as UTF-8, so the files must be written as UTF-8, too */
+    @Test
+    public void shouldKeepUnchangedNonAsciiFilesWithOtherEncoding() throws Exception {
+        File sources = folder.newFolder("sources");
+        File output = folder.newFolder("output");
+        File foo = write(sources, "FooResource", "@javax.ws.rs.Path(\"/foo\")\n"
+                + "public class FooResource {\n"
+                + "    @io.swagger.annotations.ApiOperation(\"Gr\\u00fc\\u00dfe\")\n"
+                + "    @javax.ws.rs.GET public String get() { return null; }\n"
+                + "}\n");
+        String split = "-A" + RamlAnnotationProcessor.SPLIT_OUTPUT + "=true";
+
+        compile(output, singletonList(foo), emptyList(), ISO_8859_1, split);
+        FileTime old = FileTime.fromMillis(0);
+        List<java.nio.file.Path> files = ramlFiles(output);
+        for (java.nio.file.Path file : files)
+            Files.setLastModifiedTime(file, old);
+        compile(output, singletonList(foo), emptyList(), ISO_8859_1, split);
+
+        assertThat(files.size()).as("root and include files").isGreaterThan(1);
+        assertThat(ramlFiles(output)).containsOnlyElementsOf(files);
+        for (java.nio.file.Path file : files)
+            assertThat(Files.getLastModifiedTime(file)).as("last modified of " + file).isEqualTo(old);
+        assertThat(files.stream().map(this::read).collect(joining())).contains("Gr\u00fc\u00dfe");
+    }
+
+    private List<java.nio.file.Path> ramlFiles(File output) throws IOException {
+        try (Stream<java.nio.file.Path> files = Files.walk(new File(output, "doc").toPath())) {
+            return files.filter(file -> file.toString().endsWith(".raml")).collect(toList());
+        }
+    }
+
+    private String read(java.nio.file.Path file) {
+        try {
+            return new String(Files.readAllBytes(file), UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private File write(File sources, String simpleName, String source) throws IOException {
+        File dir = new File(sources, "incremental");
+        Files.createDirectories(dir.toPath());
+        File file = new File(dir, simpleName + ".java");
+        Files.write(file.toPath(), ("package incremental;\n\n" + source).getBytes(UTF_8));
+        return file;
+    }
+
+    private void compile(File output, List<File> files, List<String> classNames) throws IOException {
+        compile(output, files, classNames, UTF_8);
+    }
+
+    private void compile(File output, List<File> files, List<String> classNames, Charset encoding,
+            String... moreOptions) throws IOException {
+        StringWriter messages = new StringWriter();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, encoding)) {
+            List<String> options = new ArrayList<>(asList("-d", output.getPath(),
+                    "-classpath", location(Path.class) + File.pathSeparator + location(ApiOperation.class)
+                            + File.pathSeparator + output.getPath(),
+                    "-encoding", encoding.name(),
+                    "-A" + RamlAnnotationProcessor.INCREMENTAL + "=true"));
+            options.addAll(asList(moreOptions));
+            JavaCompiler.CompilationTask task = compiler.getTask(messages, fileManager, diagnostics, options,
+                    classNames, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(singletonList(new RamlAnnotationProcessor()));
+            assertThat(task.call()).as("compilation succeeded:\n" + messages + diagnostics.getDiagnostics()).isTrue();
+        }
+    }
+
+    /** Surefire may hide the real class path in a manifest, so we take only the jar the sources need */
+    private String location(Class<?> type) {
+        try {
+            return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (Exception e) {
+            throw new RuntimeException("can't locate " + type, e);
+        }
+    }
+
+    private String raml(File output) throws IOException {
+        return new String(Files.readAllBytes(new File(output, "doc/api.raml").toPath()), UTF_8);
+    }
+}
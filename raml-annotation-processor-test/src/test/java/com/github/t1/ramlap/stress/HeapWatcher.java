@@ -0,0 +1,89 @@
+package com.github.t1.ramlap.stress;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.*;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import static com.sun.management.GarbageCollectionNotificationInfo.*;
+
+/**
+ * Watches the heap that is still used after each garbage collection, i.e. roughly the live objects, so the peak
+ * doesn't depend on how lazy the collector is with a big heap. If there was no collection at all, the peak of the used
+ * heap is taken instead, which includes garbage, so it's an upper bound.
+ */
+class HeapWatcher implements NotificationListener, AutoCloseable {
+    private final Set<String> heapPools = new HashSet<>();
+    private final AtomicLong peakAfterGc = new AtomicLong();
+    private final AtomicInteger collections = new AtomicInteger();
+    private final AtomicInteger explicitCollections = new AtomicInteger();
+
+    HeapWatcher() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+                pool.resetPeakUsage();
+            }
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            ((NotificationEmitter) gc).addNotificationListener(this, null, null);
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+            return;
+        GarbageCollectionNotificationInfo info = from((CompositeData) notification.getUserData());
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> entry : info.getGcInfo().getMemoryUsageAfterGc().entrySet())
+            if (heapPools.contains(entry.getKey()))
+                used += entry.getValue().getUsed();
+        if ("System.gc()".equals(info.getGcCause())) {
+            explicitCollections.incrementAndGet();
+        } else {
+            peakAfterGc.accumulateAndGet(used, Math::max);
+            collections.incrementAndGet();
+        }
+    }
+
+    /**
+     * The notifications are delivered asynchronously, but in order, so trigger a collection and wait for its
+     * notification, so all earlier notifications have been handled, too.
+     */
+    void sync() throws InterruptedException {
+        int before = explicitCollections.get();
+        System.gc();
+        for (int i = 0; i < 500 && explicitCollections.get() == before; i++)
+            Thread.sleep(10);
+    }
+
+    /** The peak in MB */
+    long peakMb() {
+        long peak = (collections.get() > 0) ? peakAfterGc.get() : peakUsed();
+        return peak / 1024 / 1024;
+    }
+
+    private long peakUsed() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        return peak;
+    }
+
+    int getCollections() {
+        return collections.get();
+    }
+
+    @Override
+    public void close() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            try {
+                ((NotificationEmitter) gc).removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // was never added
+            }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.t1.ramlap.stress;
+
+import com.github.t1.ramlap.RamlAnnotationProcessor;
+import io.swagger.annotations.SwaggerDefinition;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.*;
+
+import javax.json.*;
+import javax.tools.*;
+import javax.ws.rs.Path;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Generates a large API and runs the real processor on it inside javac, asserting bounds on the wall time and the
+ * peak heap, to catch scaling cliffs like quadratic paths or memory blowups. The size and the bounds can be set with
+ * system properties, e.g. <code>-Dstress.resources=5000 -Dstress.maxSeconds=300</code>. It takes a while, so it only
+ * runs with the <code>stress</code> profile.
+ */
+public class LargeApiStressIntegrationTest {
+    private static final Logger log = LoggerFactory.getLogger(LargeApiStressIntegrationTest.class);
+
+    private static final int RESOURCES = Integer.getInteger("stress.resources", 1000);
+    private static final int METHODS = Integer.getInteger("stress.methods", 6);
+    private static final int DEPTH = Integer.getInteger("stress.depth", 2);
+    private static final int MAX_SECONDS = Integer.getInteger("stress.maxSeconds", 120);
+    private static final int MAX_HEAP_MB = Integer.getInteger("stress.maxHeapMb", 768);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File sources;
+    private File output;
+    private final StringWriter messages = new StringWriter();
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    @Before
+    public void setUp() throws IOException {
+        sources = folder.newFolder("sources");
+        output = folder.newFolder("output");
+    }
+
+    @Test
+    public void shouldProcessLargeApiWithinBounds() throws Exception {
+        List<File> files = new StressApiGenerator(RESOURCES, METHODS, DEPTH).writeTo(sources.toPath());
+
+        boolean success;
+        long millis;
+        long peakHeapMb;
+        try (HeapWatcher heap = new HeapWatcher()) {
+            long start = System.nanoTime();
+            success = compile(files);
+            millis = (System.nanoTime() - start) / 1_000_000;
+            heap.sync();
+            peakHeapMb = heap.peakMb();
+        }
+        log.info("processed {} classes in {} ms; peak heap {} MB", files.size(), millis, peakHeapMb);
+
+        assertThat(success).as("compilation succeeded:\n" + messages + diagnostics.getDiagnostics()).isTrue();
+        assertThat(new File(output, "doc/" + StressApiGenerator.TITLE + ".raml")).exists();
+        JsonObject counts = metrics().getJsonObject("counts");
+        assertThat(counts.getInt("types")).isEqualTo(RESOURCES);
+        assertThat(counts.getInt("methods")).isEqualTo(RESOURCES * METHODS);
+        assertThat(millis).as("wall time in ms").isLessThan(MAX_SECONDS * 1000L);
+        assertThat(peakHeapMb).as("peak heap in MB").isLessThan(MAX_HEAP_MB);
+    }
+
+    private boolean compile(List<File> files) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, UTF_8)) {
+            List<String> options = asList("-proc:only", "-d", output.getPath(), "-classpath", classPath(),
+                    "-A" + RamlAnnotationProcessor.METRICS + "=true");
+            JavaCompiler.CompilationTask task = compiler.getTask(messages, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(singletonList(new RamlAnnotationProcessor()));
+            return task.call();
+        }
+    }
+
+    /** Surefire may hide the real class path in a manifest, so we take only the jars the sources need */
+    private String classPath() {
+        return location(Path.class) + File.pathSeparator + location(SwaggerDefinition.class);
+    }
+
+    private String location(Class<?> type) {
+        try {
+            return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (Exception e) {
+            throw new RuntimeException("can't locate " + type, e);
+        }
+    }
+
+    private JsonObject metrics() throws IOException {
+        File file = new File(output, "doc/" + StressApiGenerator.TITLE + "-metrics.json");
+        try (JsonReader reader = Json.createReader(Files.newBufferedReader(file.toPath(), UTF_8))) {
+            return reader.readObject();
+        }
+    }
+}
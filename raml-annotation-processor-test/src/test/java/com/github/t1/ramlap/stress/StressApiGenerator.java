@@ -0,0 +1,96 @@
+package com.github.t1.ramlap.stress;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.*;
+
+/**
+ * Writes the sources of a large JAX-RS API: a {@code @SwaggerDefinition}, a number of resources with a number of
+ * methods each, and a chain of DTOs of some depth per resource, all referring to a DTO and an enum shared by all.
+ */
+class StressApiGenerator {
+    static final String PACKAGE = "stress";
+    static final String TITLE = "stress";
+
+    private final int resources;
+    private final int methods;
+    private final int depth;
+
+    StressApiGenerator(int resources, int methods, int depth) {
+        this.resources = resources;
+        this.methods = methods;
+        this.depth = depth;
+    }
+
+    /** @return the files written */
+    List<File> writeTo(Path dir) throws IOException {
+        Path packageDir = Files.createDirectories(dir.resolve(PACKAGE));
+        List<File> files = new ArrayList<>();
+        files.add(write(packageDir, "StressApi", ""
+                + "@io.swagger.annotations.SwaggerDefinition(\n"
+                + "        info = @io.swagger.annotations.Info(title = \"" + TITLE + "\", version = \"1\"))\n"
+                + "public class StressApi {}\n"));
+        files.add(write(packageDir, "Kind", "public enum Kind { ALPHA, BETA, GAMMA }\n"));
+        files.add(write(packageDir, "Shared", ""
+                + "public class Shared {\n"
+                + "    public String id;\n"
+                + "    public long version;\n"
+                + "    public java.util.List<String> tags;\n"
+                + "}\n"));
+        for (int r = 0; r < resources; r++) {
+            for (int level = 0; level < depth; level++)
+                files.add(write(packageDir, dto(r, level), dto(r, level, level + 1 < depth)));
+            files.add(write(packageDir, "Resource" + r, resource(r)));
+        }
+        return files;
+    }
+
+    private File write(Path packageDir, String simpleName, String source) throws IOException {
+        Path file = packageDir.resolve(simpleName + ".java");
+        Files.write(file, ("package " + PACKAGE + ";\n\n" + source).getBytes(UTF_8));
+        return file.toFile();
+    }
+
+    private String dto(int r, int level) {
+        return "Dto" + r + "x" + level;
+    }
+
+    private String dto(int r, int level, boolean hasChild) {
+        return "public class " + dto(r, level) + " {\n"
+                + "    public String name;\n"
+                + "    public int count;\n"
+                + "    public boolean active;\n"
+                + "    public Kind kind;\n"
+                + "    public Shared shared;\n"
+                + (hasChild ? "    public " + dto(r, level + 1) + " child;\n" : "")
+                + "}\n";
+    }
+
+    private String resource(int r) {
+        String dto = dto(r, 0);
+        StringBuilder out = new StringBuilder();
+        out.append("import javax.ws.rs.*;\n\n");
+        out.append("@Path(\"/resource").append(r).append("\")\n");
+        out.append("public class Resource").append(r).append(" {\n");
+        for (int m = 0; m < methods; m++) {
+            switch (m % 3) {
+            case 0:
+                out.append("    @GET @Path(\"/m").append(m).append("/{id}\")\n");
+                out.append("    public ").append(dto).append(" get").append(m)
+                        .append("(@PathParam(\"id\") String id) { return null; }\n");
+                break;
+            case 1:
+                out.append("    @GET @Path(\"/m").append(m).append("\")\n");
+                out.append("    public java.util.List<").append(dto).append("> list").append(m)
+                        .append("(@QueryParam(\"limit\") int limit) { return null; }\n");
+                break;
+            default:
+                out.append("    @POST @Path(\"/m").append(m).append("\")\n");
+                out.append("    public void post").append(m).append("(").append(dto).append(" body) {}\n");
+            }
+        }
+        return out.append("}\n").toString();
+    }
+}
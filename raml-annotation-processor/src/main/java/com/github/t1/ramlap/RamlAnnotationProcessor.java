@@ -5,40 +5,136 @@ import com.github.t1.exap.reflection.Package;
 import com.github.t1.exap.reflection.*;
 import com.github.t1.ramlap.annotations.ApiGenerate;
 import com.github.t1.ramlap.generator.ApiGenerator;
-import com.github.t1.ramlap.scanner.RamlScanner;
+import com.github.t1.ramlap.scanner.*;
 import io.swagger.annotations.SwaggerDefinition;
-import org.raml.emitter.RamlEmitter;
+import org.raml.model.Raml;
 import org.slf4j.*;
 
-import javax.annotation.processing.SupportedSourceVersion;
+import javax.annotation.processing.*;
+import javax.lang.model.element.*;
+import javax.tools.FileObject;
 import javax.ws.rs.Path;
 import java.io.*;
-import java.util.List;
+import java.net.URI;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.function.Supplier;
 
+import static java.nio.charset.StandardCharsets.*;
 import static javax.lang.model.SourceVersion.*;
+import static javax.tools.StandardLocation.*;
 
+/**
+ * Declared as an <em>aggregating</em> incremental processor for Gradle (see
+ * <code>META-INF/gradle/incremental.annotation.processors</code>), so all annotated types are reprocessed, but only
+ * changed files are recompiled. The RAML file is created with all scanned types as originating elements. Note that
+ * Gradle doesn't reprocess when only the JavaDoc changes.
+ */
 @SupportedSourceVersion(RELEASE_8)
 @SupportedAnnotationClasses({ ApiGenerate.class, SwaggerDefinition.class, Path.class })
+@SupportedOptions({ RamlAnnotationProcessor.INCREMENTAL, RamlAnnotationProcessor.PARALLELISM,
+        RamlAnnotationProcessor.ROOT_SCHEMAS, RamlAnnotationProcessor.SCHEMA_CACHE_SIZE,
+        RamlAnnotationProcessor.XML_SCHEMA_BATCH, RamlAnnotationProcessor.XML_SCHEMA_MIRRORS,
+        RamlAnnotationProcessor.EXAMPLE_RECURSION_DEPTH, RamlAnnotationProcessor.SPLIT_OUTPUT,
+        RamlAnnotationProcessor.METRICS })
 public class RamlAnnotationProcessor extends ExtendedAbstractProcessor {
     private static final Logger log = LoggerFactory.getLogger(RamlAnnotationProcessor.class);
 
+    /** The package of the class output where the RAML file is written to */
+    static final String RAML_PACKAGE = "doc";
+
+    /** Processor option to cache the RAML fragment of every JAX-RS type, so unchanged types are not scanned again */
+    public static final String INCREMENTAL = "ramlap.incremental";
+
+    /**
+     * Processor option for the number of threads to generate schemas and examples with; defaults to 1, i.e. serial.
+     * This is experimental, as javac doesn't guarantee its model to be thread safe.
+     */
+    public static final String PARALLELISM = "ramlap.parallelism";
+
+    /** Processor option to generate every schema only once into the RAML root, and refer to it from the bodies */
+    public static final String ROOT_SCHEMAS = "ramlap.rootSchemas";
+
+    /** Processor option for the maximum number of schemas to keep in memory; <code>0</code> disables the cache */
+    public static final String SCHEMA_CACHE_SIZE = "ramlap.schemaCacheSize";
+
+    /** Processor option to generate all XML schemas with one JAXB context, instead of one context per type */
+    public static final String XML_SCHEMA_BATCH = "ramlap.xmlSchemaBatch";
+
+    /** Processor option to generate XML schemas from the compiler model instead of loading the classes for JAXB */
+    public static final String XML_SCHEMA_MIRRORS = "ramlap.xmlSchemaMirrors";
+
+    /** Processor option for how often a recursive type is expanded within itself in examples; defaults to 1 */
+    public static final String EXAMPLE_RECURSION_DEPTH = "ramlap.exampleRecursionDepth";
+
+    /**
+     * Processor option to write every top level resource and every root schema into a file of its own, in a directory
+     * next to the RAML file, which only <code>!include</code>s them. Unchanged files are not rewritten.
+     */
+    public static final String SPLIT_OUTPUT = "ramlap.splitOutput";
+
+    /**
+     * Processor option to write the times of the processing phases and of every scanned type, some counts, and the
+     * cache hit rates as JSON into a <code>-metrics.json</code> file next to the RAML file.
+     */
+    public static final String METRICS = "ramlap.metrics";
+
     public static boolean isStrict() {
         return false; // TODO this should be configurable
     }
 
     private final RamlScanner scanner = new RamlScanner();
+    private RamlFragmentCache fragmentCache;
+    private final Set<Element> originatingElements = new LinkedHashSet<>();
+
+    private boolean configured = false;
+
+    private void configure() {
+        configured = true;
+        if (isOptionSet(INCREMENTAL))
+            fragmentCache = RamlFragmentCache.in(processingEnv.getFiler());
+        if (isOptionSet(ROOT_SCHEMAS))
+            scanner.rootSchemas();
+        if (isOptionSet(XML_SCHEMA_BATCH))
+            scanner.xmlSchemaBatch();
+        if (isOptionSet(XML_SCHEMA_MIRRORS))
+            scanner.xmlSchemaMirrors();
+        scanner.schemaCacheSize(intOption(SCHEMA_CACHE_SIZE, SchemaCache.DEFAULT_MAX_SIZE));
+        scanner.exampleRecursionDepth(intOption(EXAMPLE_RECURSION_DEPTH, ExampleGenerator.DEFAULT_RECURSION_DEPTH));
+        scanner.parallelism(intOption(PARALLELISM, 1));
+        if (isOptionSet(METRICS))
+            scanner.metrics(new ProcessingMetrics());
+    }
+
+    private boolean isOptionSet(String name) {
+        return Boolean.parseBoolean(processingEnv.getOptions().get(name));
+    }
+
+    private int intOption(String name, int defaultValue) {
+        String value = processingEnv.getOptions().get(name);
+        return (value == null) ? defaultValue : Integer.parseInt(value);
+    }
 
     @Override
     public boolean process(Round round) throws IOException {
         log.debug("process {}", round);
 
+        if (!configured)
+            configure();
+        long start = System.nanoTime();
+
         scanSwaggerDefinitions(round.typesAnnotatedWith(SwaggerDefinition.class));
         scanTypes(round.typesAnnotatedWith(Path.class));
         generateApis(round.packagesAnnotatedWith(ApiGenerate.class));
 
-        if (round.isLast() && scanner.isWorthWriting())
-            writeRaml(round);
+        boolean write = round.isLast() && scanner.isWorthWriting();
+        if (write)
+            writeRaml();
 
+        scanner.getMetrics().record(ProcessingMetrics.Phase.PROCESSING, System.nanoTime() - start);
+        if (write && scanner.getMetrics().isEnabled())
+            writeMetrics();
         return false;
     }
 
@@ -53,6 +149,7 @@ public class RamlAnnotationProcessor extends ExtendedAbstractProcessor {
             return;
         SwaggerDefinition swaggerAnnotation = swaggerType.getAnnotation(SwaggerDefinition.class);
         scanner.scan(swaggerAnnotation);
+        originate(swaggerType);
         log.debug("processed {}", swaggerType);
     }
 
@@ -70,7 +167,15 @@ public class RamlAnnotationProcessor extends ExtendedAbstractProcessor {
     }
 
     private void scanTypes(List<Type> types) {
-        types.stream().filter(this::notGeneratedApi).forEach(scanner::scanJaxRsType);
+        types.stream().filter(this::notGeneratedApi).forEach(this::scanType);
+    }
+
+    private void scanType(Type type) {
+        originate(type);
+        if (fragmentCache == null)
+            scanner.scanJaxRsType(type);
+        else
+            fragmentCache.scan(type, scanner);
     }
 
     private boolean notGeneratedApi(Type type) {
@@ -81,13 +186,129 @@ public class RamlAnnotationProcessor extends ExtendedAbstractProcessor {
         return !isApiGenerated;
     }
 
-    private void writeRaml(Round round) throws IOException {
-        String relativeName = scanner.getFileName().replace(' ', '-');
-        Resource resource = round.createResource(relativeName);
-        log.debug("write {}", resource.getName());
+    private void originate(Type type) {
+        TypeElement element = processingEnv.getElementUtils().getTypeElement(type.getFullName().replace('$', '.'));
+        if (element != null)
+            originatingElements.add(element);
+    }
+
+    private String ramlFileName() {
+        return scanner.getFileName().replace(' ', '-');
+    }
+
+    /** The RAML file name without the extension */
+    private String baseName() {
+        return ramlFileName().replaceFirst("\\.raml$", "");
+    }
+
+    private void writeRaml() throws IOException {
+        String relativeName = ramlFileName();
+        Raml raml = scanner.getResult();
+        long start = System.nanoTime();
+        StreamingRamlEmitter emitter = new StreamingRamlEmitter();
+        SplitRamlEmitter split = new SplitRamlEmitter(baseName());
+        Set<String> includes = new HashSet<>();
+        if (isOptionSet(SPLIT_OUTPUT)) {
+            split.emitIncludes(raml, (name, content) -> {
+                includes.add(name);
+                write(name, () -> sha256(content.getBytes(UTF_8)), writer -> writer.write(content));
+            });
+            emitter = split;
+        }
+        deleteStaleIncludes(split, includes);
+        StreamingRamlEmitter rootEmitter = emitter;
+        String created = write(relativeName, () -> rootEmitter.digest(raml), writer -> rootEmitter.emit(raml, writer));
+        scanner.getMetrics().record(ProcessingMetrics.Phase.EMIT, System.nanoTime() - start);
+        if (created == null)
+            log.info("{} is unchanged; keep it", relativeName);
+        else
+            log.info("created {}", created);
+        if (scanner.getSchemaCache() != null)
+            log.info("{}", scanner.getSchemaCache());
+        if (fragmentCache != null)
+            log.info("fragment cache: {} hits, {} misses", fragmentCache.getHits(), fragmentCache.getMisses());
+    }
+
+    private void writeMetrics() throws IOException {
+        ProcessingMetrics metrics = scanner.getMetrics();
+        metrics.count(ProcessingMetrics.Count.CLASSIFIED_TYPES, scanner.getClassifiedTypeCount());
+        if (scanner.getSchemaCache() != null)
+            metrics.cache("schemaCache", scanner.getSchemaCache().getHits(), scanner.getSchemaCache().getMisses());
+        if (fragmentCache != null)
+            metrics.cache("fragmentCache", fragmentCache.getHits(), fragmentCache.getMisses());
+        FileObject resource =
+                processingEnv.getFiler().createResource(CLASS_OUTPUT, RAML_PACKAGE, baseName() + "-metrics.json");
         try (Writer writer = resource.openWriter()) {
-            writer.write(new RamlEmitter().dump(scanner.getResult()));
+            metrics.writeJson(writer);
+        }
+        log.info("wrote metrics to {}", resource.getName());
+    }
+
+    private interface Content {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    /**
+     * The content is written as UTF-8, not in the encoding of the compiler, as that's what the digest is calculated
+     * for, so an unchanged file is recognized on every platform.
+     *
+     * @return the name of the resource written, or <code>null</code>, if the existing file has the same digest
+     */
+    private String write(String relativeName, Supplier<byte[]> digest, Content content) throws IOException {
+        byte[] existing = existingDigest(relativeName);
+        if (existing != null && MessageDigest.isEqual(existing, digest.get())) {
+            log.debug("{} is unchanged", relativeName);
+            return null;
+        }
+        FileObject resource = processingEnv.getFiler().createResource(CLASS_OUTPUT, RAML_PACKAGE, relativeName,
+                originatingElements.toArray(new Element[originatingElements.size()]));
+        log.debug("write {}", resource.getName());
+        try (Writer writer = new OutputStreamWriter(resource.openOutputStream(), UTF_8)) {
+            content.writeTo(writer);
+        }
+        return resource.getName();
+    }
+
+    /** Also when the output is not split (any more), so no includes of a previous compile are left behind */
+    private void deleteStaleIncludes(SplitRamlEmitter split, Set<String> includes) {
+        try {
+            URI uri = processingEnv.getFiler().getResource(CLASS_OUTPUT, RAML_PACKAGE, baseName()).toUri();
+            int deleted = split.deleteStaleIncludes(Paths.get(uri).getParent(), includes);
+            if (deleted > 0)
+                log.info("deleted {} stale include files", deleted);
+        } catch (IOException | FileSystemNotFoundException | IllegalArgumentException e) {
+            log.warn("can't delete stale include files: " + e);
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The SHA-256 digest of the RAML file written by a previous compile, so we don't touch it when the content is the
+     * same, as a new timestamp would trigger all downstream tasks; <code>null</code> if there is no such file.
+     */
+    private byte[] existingDigest(String relativeName) {
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(CLASS_OUTPUT, RAML_PACKAGE, relativeName);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(existing.openInputStream(), digest)) {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) >= 0) {
+                    // the stream updates the digest
+                }
+            }
+            return digest.digest();
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            log.debug("no existing {}: {}", relativeName, e.toString());
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
         }
-        log.info("created {}", resource.getName());
     }
 }
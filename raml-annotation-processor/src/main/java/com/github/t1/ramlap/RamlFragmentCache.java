@@ -0,0 +1,275 @@
+package com.github.t1.ramlap;
+
+import com.github.t1.exap.JavaDoc;
+import com.github.t1.exap.reflection.*;
+import com.github.t1.ramlap.scanner.*;
+import com.github.t1.ramlap.scanner.Diagnostics.*;
+import org.raml.model.Raml;
+import org.raml.parser.loader.DefaultResourceLoader;
+import org.raml.parser.visitor.YamlDocumentBuilder;
+import org.slf4j.*;
+
+import javax.annotation.processing.Filer;
+import javax.tools.Diagnostic.Kind;
+import java.io.*;
+import java.net.URI;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.*;
+import static javax.tools.StandardLocation.*;
+
+/**
+ * Keeps the RAML fragment that each JAX-RS type contributes in a directory under the class output, keyed by a hash of
+ * the signature and annotations of the type, its methods, and the types they reference. Only types whose key changed
+ * are scanned again; all others are loaded from the cache and merged into the {@link RamlScanner}.
+ * <p>
+ * The notes, warnings, and errors of a scan are stored with the fragment and {@link Diagnostics#replay(Type, List)
+ * replayed} when it's loaded from the cache, so they don't get lost on incremental builds.
+ */
+public class RamlFragmentCache {
+    private static final Logger log = LoggerFactory.getLogger(RamlFragmentCache.class);
+
+    /** Increment when the scanner output changes, so old fragments are not used any more */
+    private static final int FORMAT_VERSION = 4;
+
+    static final String DIRECTORY = "ramlap-cache";
+
+    /** The cache in the class output, or <code>null</code>, if that's not in a (default) file system. */
+    public static RamlFragmentCache in(Filer filer) {
+        try {
+            URI uri = filer.getResource(CLASS_OUTPUT, "", DIRECTORY).toUri();
+            return new RamlFragmentCache(Paths.get(uri));
+        } catch (IOException | FileSystemNotFoundException | IllegalArgumentException e) {
+            log.warn("can't locate class output for " + DIRECTORY + "; run without cache: " + e);
+            return null;
+        }
+    }
+
+    private final Path directory;
+    private int hits = 0;
+    private int misses = 0;
+
+    public RamlFragmentCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public void scan(Type type, RamlScanner scanner) {
+        String key = key(type, scanner.getOutputSettings());
+        Cached cached = read(type, key);
+        if (cached == null) {
+            misses++;
+            Recorded<Raml> recorded = Diagnostics.record(() -> scanner.scanJaxRsTypeFragment(type));
+            cached = new Cached(recorded.getResult(), recorded.getDiagnostics());
+            write(type, key, cached);
+        } else {
+            hits++;
+            log.debug("use cached fragment for {}", type.getFullName());
+            Diagnostics.replay(type, cached.diagnostics);
+        }
+        scanner.merge(type, cached.fragment);
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    private Path file(Type type) {
+        return directory.resolve(type.getFullName() + ".raml");
+    }
+
+    private static class Cached {
+        private final Raml fragment;
+        private final List<Diagnostic> diagnostics;
+
+        private Cached(Raml fragment, List<Diagnostic> diagnostics) {
+            this.fragment = fragment;
+            this.diagnostics = diagnostics;
+        }
+    }
+
+    private Cached read(Type type, String key) {
+        Path file = file(type);
+        if (!Files.exists(file))
+            return null;
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            if (!key.equals(reader.readLine())) {
+                log.debug("fragment of {} is outdated", type.getFullName());
+                return null;
+            }
+            List<Diagnostic> diagnostics = readDiagnostics(reader);
+            Raml fragment = new YamlDocumentBuilder<>(Raml.class, new DefaultResourceLoader()).build(reader, "");
+            return new Cached(fragment, diagnostics);
+        } catch (IOException | RuntimeException e) {
+            log.warn("can't read cached fragment " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /** A line with the number of diagnostics, then one line per diagnostic: the kind, target, and message */
+    private List<Diagnostic> readDiagnostics(BufferedReader reader) throws IOException {
+        int count = Integer.parseInt(reader.readLine());
+        List<Diagnostic> diagnostics = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] fields = reader.readLine().split("\t", 3);
+            diagnostics.add(new Diagnostic(Kind.valueOf(fields[0]), unescape(fields[1]), unescape(fields[2])));
+        }
+        return diagnostics;
+    }
+
+    private void writeDiagnostics(List<Diagnostic> diagnostics, Writer writer) throws IOException {
+        writer.write(Integer.toString(diagnostics.size()));
+        writer.write('\n');
+        for (Diagnostic diagnostic : diagnostics) {
+            writer.write(diagnostic.getKind().name());
+            writer.write('\t');
+            writer.write(escape(diagnostic.getTarget()));
+            writer.write('\t');
+            writer.write(escape(diagnostic.getMessage()));
+            writer.write('\n');
+        }
+    }
+
+    static String escape(String string) {
+        return string.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    static String unescape(String string) {
+        StringBuilder out = new StringBuilder(string.length());
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '\\' && i + 1 < string.length()) {
+                c = string.charAt(++i);
+                switch (c) {
+                case 't':
+                    c = '\t';
+                    break;
+                case 'n':
+                    c = '\n';
+                    break;
+                case 'r':
+                    c = '\r';
+                    break;
+                }
+            }
+            out.append(c);
+        }
+        return out.toString();
+    }
+
+    private void write(Type type, String key, Cached cached) {
+        Path file = file(type);
+        try {
+            Files.createDirectories(directory);
+            try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+                writer.write(key);
+                writer.write('\n');
+                writeDiagnostics(cached.diagnostics, writer);
+                new StreamingRamlEmitter().emit(cached.fragment, writer);
+            }
+        } catch (IOException e) {
+            log.warn("can't write cached fragment " + file + ": " + e);
+        }
+    }
+
+    static String key(Type type, String outputSettings) {
+        return hex(sha256(new Signature().of(type, outputSettings).toString()));
+    }
+
+    private static byte[] sha256(String string) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(string.getBytes(UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder out = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes)
+            out.append(String.format("%02x", b));
+        return out.toString();
+    }
+
+    /**
+     * Collects everything that can change the fragment of a type: its annotations and methods, and the fields of the
+     * parameter and response types. JDK types are not expanded, they don't change from compile to compile.
+     */
+    private static class Signature {
+        private final StringBuilder out = new StringBuilder();
+        private final Set<String> visited = new HashSet<>();
+
+        public Signature of(Type type, String outputSettings) {
+            out.append("format:").append(FORMAT_VERSION).append('\n');
+            out.append("settings:").append(outputSettings).append('\n');
+            out.append("type:").append(type.getFullName()).append('\n');
+            annotations(type);
+            type.accept(new TypeVisitor() {
+                @Override
+                public void visit(Method method) {
+                    method(method);
+                }
+            });
+            return this;
+        }
+
+        private void method(Method method) {
+            out.append("method:").append(method.getName()).append(':').append(name(method.getReturnType())).append('\n');
+            annotations(method);
+            for (Parameter parameter : method.getParameters()) {
+                out.append("param:").append(name(parameter.getType())).append('\n');
+                annotations(parameter);
+                referenced(parameter.getType());
+            }
+            for (ResponseScanner response : ResponseScanner.responses(method)) {
+                referenced(response.responseType());
+                for (ResponseHeaderScanner header : response.responseHeaders())
+                    referenced(header.response());
+            }
+        }
+
+        private void referenced(Type type) {
+            if (type == null || !visited.add(type.toString()))
+                return;
+            out.append("referenced:").append(type.getFullName()).append('\n');
+            if (type.isArray())
+                referenced(type.elementType());
+            for (Type typeParameter : type.getTypeParameters())
+                referenced(typeParameter);
+            if (isJdk(type))
+                return;
+            annotations(type);
+            for (Field field : type.getAllFields()) {
+                out.append("field:").append(field.getName()).append(':').append(name(field.getType())).append('\n');
+                annotations(field);
+                referenced(field.getType());
+            }
+        }
+
+        private boolean isJdk(Type type) {
+            String name = type.getFullName();
+            return name.startsWith("java.") || name.startsWith("javax.") || !name.contains(".");
+        }
+
+        private void annotations(Elemental elemental) {
+            if (elemental.isAnnotated(JavaDoc.class))
+                out.append("doc:").append(elemental.getAnnotation(JavaDoc.class).value()).append('\n');
+            for (AnnotationWrapper annotation : elemental.getAnnotationWrappers())
+                out.append(annotation).append('\n');
+        }
+
+        private String name(Type type) {
+            return (type == null) ? "void" : type.toString();
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+    }
+}
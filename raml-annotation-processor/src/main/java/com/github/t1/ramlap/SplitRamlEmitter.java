@@ -0,0 +1,168 @@
+package com.github.t1.ramlap;
+
+import org.raml.model.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static java.util.stream.Collectors.*;
+
+/**
+ * Emits the RAML as a small root document that <code>!include</code>s a file for every top level resource and every
+ * root schema, so big APIs can be loaded (and diffed) in parts. The include files go into a directory relative to
+ * the root document; {@link #emitIncludes(Raml, Includes)} passes them one by one to the caller, who writes them.
+ * <p>
+ * Resources without actions and sub resources are inlined, as an empty include file is not a valid resource. Note
+ * that the content of an include file is built in memory, so a single huge top level resource is not streamed.
+ */
+public class SplitRamlEmitter extends StreamingRamlEmitter {
+    /** Writes one include file */
+    public interface Includes {
+        void write(String relativeName, String content) throws IOException;
+    }
+
+    private final String directory;
+
+    /** @param directory the directory for the include files, relative to the root document */
+    public SplitRamlEmitter(String directory) {
+        this.directory = directory;
+    }
+
+    public void emitIncludes(Raml raml, Includes includes) throws IOException {
+        if (raml.getSchemas() != null)
+            for (Map<String, String> schema : raml.getSchemas())
+                for (Map.Entry<String, String> entry : schema.entrySet())
+                    includes.write(schemaFile(entry.getKey(), entry.getValue()), entry.getValue());
+        for (Map.Entry<String, Resource> entry : raml.getResources().entrySet())
+            if (isIncluded(entry.getValue()))
+                includes.write(resourceFile(entry.getKey()),
+                        body(resourceChunk(entry.getKey(), entry.getValue())));
+    }
+
+    /**
+     * Delete the files in the include directories that were not written (or left unchanged) in this run, e.g. of a
+     * resource that has been removed since, and the directories that are empty then.
+     *
+     * @param root the directory of the root document
+     * @param written the names of the include files of this run, as passed to the {@link Includes}
+     * @return the number of files deleted
+     */
+    public int deleteStaleIncludes(Path root, Set<String> written) throws IOException {
+        int deleted = 0;
+        for (String kind : asList("schemas", "resources")) {
+            Path dir = root.resolve(directory).resolve(kind);
+            if (!Files.isDirectory(dir))
+                continue;
+            List<Path> paths;
+            try (Stream<Path> stream = Files.walk(dir)) {
+                paths = stream.sorted(reverseOrder()).collect(toList()); // files before their directories
+            }
+            for (Path path : paths)
+                if (Files.isDirectory(path))
+                    deleteIfEmpty(path);
+                else if (!written.contains(root.relativize(path).toString().replace(File.separatorChar, '/'))) {
+                    Files.delete(path);
+                    deleted++;
+                }
+        }
+        return deleted;
+    }
+
+    private void deleteIfEmpty(Path dir) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            if (entries.iterator().hasNext())
+                return;
+        }
+        Files.delete(dir);
+    }
+
+    @Override
+    protected String schemaChunk(Map<String, String> schema) {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, String> entry : schema.entrySet()) {
+            // let the emitter write the key, so it's quoted the same way
+            String yaml = super.schemaChunk(singletonMap(entry.getKey(), "x"));
+            if (out.length() > 0)
+                yaml = yaml.substring(yaml.indexOf('\n', SCHEMAS.length()) + 1);
+            out.append(include(yaml, "x", schemaFile(entry.getKey(), entry.getValue())));
+        }
+        return out.toString();
+    }
+
+    @Override
+    protected void writeResource(String path, Resource resource, Writer out) throws IOException {
+        if (isIncluded(resource))
+            out.write(include(resourceChunk(path, new Resource()), "", resourceFile(path)));
+        else
+            super.writeResource(path, resource, out);
+    }
+
+    private boolean isIncluded(Resource resource) {
+        return !resource.getActions().isEmpty() || !resource.getResources().isEmpty();
+    }
+
+    /** Replace the value at the end of that yaml with the include of the file */
+    private String include(String yaml, String value, String file) {
+        String end = ": " + value + "\n";
+        if (!yaml.endsWith(end))
+            throw new IllegalStateException("expected chunk to end with [" + end + "] but got [" + yaml + "]");
+        return yaml.substring(0, yaml.length() - end.length()) + ": !include " + file + "\n";
+    }
+
+    /** The lines after the key of a single resource chunk, one level less indented */
+    private String body(String yaml) {
+        StringBuilder out = new StringBuilder();
+        String[] lines = yaml.split("\n", -1);
+        for (int i = 1; i < lines.length - 1; i++) {
+            String line = lines[i];
+            out.append(line.startsWith(INDENT) ? line.substring(INDENT.length()) : line).append('\n');
+        }
+        return out.toString();
+    }
+
+    String schemaFile(String name, String schema) {
+        return directory + "/schemas/" + fileName(name) + (schema.trim().startsWith("<") ? ".xsd" : ".json");
+    }
+
+    String resourceFile(String path) {
+        if ("/".equals(path))
+            return directory + "/resources.raml";
+        StringBuilder out = new StringBuilder(directory).append("/resources");
+        for (String segment : path.split("/"))
+            if (!segment.isEmpty())
+                out.append('/').append(fileName(segment));
+        return out.append(".raml").toString();
+    }
+
+    /** Replace the characters that are not allowed in file names on some systems */
+    private String fileName(String name) {
+        StringBuilder out = new StringBuilder(name.length());
+        for (char c : name.toCharArray()) {
+            switch (c) {
+            case '<':
+                out.append('(');
+                break;
+            case '>':
+                out.append(')');
+                break;
+            case '?':
+            case '*':
+            case ':':
+            case '"':
+            case '|':
+            case '\\':
+            case '/':
+            case ' ':
+                out.append('_');
+                break;
+            default:
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
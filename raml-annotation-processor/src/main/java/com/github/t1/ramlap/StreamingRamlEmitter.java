@@ -0,0 +1,164 @@
+package com.github.t1.ramlap;
+
+import org.raml.emitter.RamlEmitter;
+import org.raml.model.*;
+
+import java.io.*;
+import java.security.*;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Collections.*;
+
+/**
+ * Writes the same YAML as the {@link RamlEmitter}, but without building the whole document as one string in memory.
+ * The {@link RamlEmitter} only dumps complete {@link Raml} documents, so this emitter dumps one document per top
+ * level node (every schema, every resource, etc.), strips the header lines, and writes the chunks one after the
+ * other. Resources are split further: every resource is dumped without its sub resources, which follow one by one,
+ * indented by their depth. The peak memory is then bounded by the largest single schema or resource level, even if
+ * all resources are below one common prefix like <code>/api</code>.
+ * <p>
+ * The {@link #digest(Raml) digest} is computed the same way, i.e. without keeping the document in memory.
+ */
+public class StreamingRamlEmitter {
+    private static final String HEADER = RamlEmitter.VERSION + "\n";
+    static final String SCHEMAS = "schemas: \n";
+    static final String INDENT = "    ";
+    /** Discards everything; the bytes only go into the digest */
+    private static final OutputStream NULL = new OutputStream() {
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] b, int off, int len) {}
+    };
+
+    private final RamlEmitter emitter = new RamlEmitter();
+
+    public void emit(Raml raml, Writer writer) throws IOException {
+        Writer out = (writer instanceof BufferedWriter) ? writer : new BufferedWriter(writer);
+        out.write(HEADER);
+        out.write(chunk(start(raml)));
+        writeSchemas(raml.getSchemas(), out);
+        out.write(chunk(templates(raml)));
+        for (Map.Entry<String, Resource> entry : raml.getResources().entrySet())
+            writeResource(entry.getKey(), entry.getValue(), out);
+        out.write(chunk(documentation(raml)));
+        out.flush();
+    }
+
+    /** The SHA-256 digest of the UTF-8 bytes that {@link #emit(Raml, Writer)} would write */
+    public byte[] digest(Raml raml) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            emit(raml, new OutputStreamWriter(new DigestOutputStream(NULL, digest), UTF_8));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeSchemas(List<Map<String, String>> schemas, Writer out) throws IOException {
+        if (schemas == null)
+            return;
+        boolean first = true;
+        for (Map<String, String> schema : schemas) {
+            String yaml = schemaChunk(schema);
+            out.write(first ? yaml : strip(SCHEMAS, yaml));
+            first = false;
+        }
+    }
+
+    /** The YAML of a RAML document with only this one schema, starting with the <code>schemas:</code> line */
+    protected String schemaChunk(Map<String, String> schema) {
+        Raml chunk = new Raml();
+        chunk.setSchemas(singletonList(schema));
+        return chunk(chunk);
+    }
+
+    /** Write a top level resource and its sub resources */
+    protected void writeResource(String path, Resource resource, Writer out) throws IOException {
+        writeResource(path, resource, "", out);
+    }
+
+    /**
+     * The sub resources come last in a resource, so we dump the resource without them, and then each of them, one
+     * level deeper. The sub resources are only detached while the resource is dumped.
+     */
+    private void writeResource(String path, Resource resource, String indent, Writer out) throws IOException {
+        Map<String, Resource> children = resource.getResources();
+        if (children.isEmpty()) {
+            out.write(indent(indent, singleResourceChunk(path, resource)));
+            return;
+        }
+        resource.setResources(new LinkedHashMap<>());
+        try {
+            out.write(indent(indent, singleResourceChunk(path, resource)));
+        } finally {
+            resource.setResources(children);
+        }
+        for (Map.Entry<String, Resource> entry : children.entrySet())
+            writeResource(entry.getKey(), entry.getValue(), indent + INDENT, out);
+    }
+
+    private String indent(String indent, String yaml) {
+        if (indent.isEmpty())
+            return yaml;
+        StringBuilder out = new StringBuilder(yaml.length() + 16 * indent.length());
+        int start = 0;
+        for (int end = yaml.indexOf('\n'); end >= 0; end = yaml.indexOf('\n', start)) {
+            out.append(indent).append(yaml, start, end + 1);
+            start = end + 1;
+        }
+        return out.append(yaml, start, yaml.length()).toString();
+    }
+
+    /** The YAML of a RAML document with only this one resource, including all of its sub resources */
+    protected String resourceChunk(String path, Resource resource) {
+        return singleResourceChunk(path, resource);
+    }
+
+    private String singleResourceChunk(String path, Resource resource) {
+        Raml chunk = new Raml();
+        chunk.setResources(singletonMap(path, resource));
+        return chunk(chunk);
+    }
+
+    /** The scalars and parameters that come before the schemas */
+    private Raml start(Raml raml) {
+        Raml chunk = new Raml();
+        chunk.setTitle(raml.getTitle());
+        chunk.setVersion(raml.getVersion());
+        chunk.setBaseUri(raml.getBaseUri());
+        chunk.setProtocols(raml.getProtocols());
+        chunk.setBaseUriParameters(raml.getBaseUriParameters());
+        chunk.setMediaType(raml.getMediaType());
+        return chunk;
+    }
+
+    /** The templates and security settings that come between the schemas and the resources */
+    private Raml templates(Raml raml) {
+        Raml chunk = new Raml();
+        chunk.setResourceTypes(raml.getResourceTypes());
+        chunk.setTraits(raml.getTraits());
+        chunk.setSecuritySchemes(raml.getSecuritySchemes());
+        chunk.setSecuredBy(raml.getSecuredBy());
+        return chunk;
+    }
+
+    private Raml documentation(Raml raml) {
+        Raml chunk = new Raml();
+        chunk.setDocumentation(raml.getDocumentation());
+        return chunk;
+    }
+
+    private String chunk(Raml chunk) {
+        return strip(HEADER, emitter.dump(chunk));
+    }
+
+    private String strip(String prefix, String yaml) {
+        if (!yaml.startsWith(prefix))
+            throw new IllegalStateException("expected chunk to start with [" + prefix + "] but got [" + yaml + "]");
+        return yaml.substring(prefix.length());
+    }
+}
@@ -59,4 +59,13 @@ public @interface ApiResponse {
      * Additional headers that are returned by this response.
      */
     ApiResponseHeader[] responseHeaders() default {};
+
+    /**
+     * For a {@link ProblemDetail} class that is not a server error: the {@link ProblemDetail#toWebException()} has no
+     * stack trace and builds the response only when it's needed. This is much faster for frequent client errors,
+     * e.g. in validation loops.
+     *
+     * @see com.github.t1.ramlap.tools.StacklessWebException
+     */
+    boolean stackless() default false;
 }
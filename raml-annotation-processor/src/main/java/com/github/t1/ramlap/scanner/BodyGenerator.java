@@ -0,0 +1,263 @@
+package com.github.t1.ramlap.scanner;
+
+import com.github.t1.exap.reflection.Type;
+import org.raml.model.*;
+import org.slf4j.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static com.github.t1.ramlap.scanner.ProcessingMetrics.*;
+
+/**
+ * Fills in the schema and example of a body {@link MimeType}. The {@link #DIRECT} generator does so immediately, while
+ * a parallel generator only forks the generation, and the results are set in the order of the calls, when the
+ * generator is {@link #complete() completed}, so the output is the same.
+ * <p>
+ * If there is a {@link SchemaRegistry}, every schema is generated only once and added to the root of the RAML, and the
+ * body only refers to it by name. If there is a {@link SchemaCache}, schemas are generated only once, even when they
+ * are inlined. If there is a {@link TypeClassifier}, it's shared by all generators, so every type is analyzed only
+ * once. If there is an {@link XmlSchemaGenerator}, it's used for all XML schemas; if it's a
+ * {@link XmlSchemaGenerator#isBatch() batch} generator, the XML schemas are deferred until completion, so they can be
+ * prepared in one batch. The generation times and counts go to the {@link ProcessingMetrics}.
+ */
+public class BodyGenerator {
+    public static final BodyGenerator DIRECT =
+            new BodyGenerator(null, null, null, null, null, ProcessingMetrics.DISABLED);
+
+    public static BodyGenerator of(int parallelism, SchemaRegistry registry, SchemaCache cache,
+            XmlSchemaGenerator xml, TypeClassifier classifier, ExampleGenerator examples, ProcessingMetrics metrics) {
+        boolean batch = xml != null && xml.isBatch();
+        if (parallelism <= 1 && !batch)
+            return (registry == null && cache == null && xml == null && classifier == null && examples == null
+                    && !metrics.isEnabled())
+                            ? DIRECT : new BodyGenerator(registry, cache, xml, classifier, examples, metrics);
+        return new DeferredBodyGenerator((parallelism <= 1) ? null : new Pool(parallelism), true, registry, cache,
+                xml, classifier, examples, metrics);
+    }
+
+    protected final SchemaRegistry registry;
+    protected final SchemaCache cache;
+    protected final XmlSchemaGenerator xml;
+    protected final TypeClassifier classifier;
+    protected final ExampleGenerator examples;
+    protected final ProcessingMetrics metrics;
+
+    protected BodyGenerator(SchemaRegistry registry, SchemaCache cache, XmlSchemaGenerator xml,
+            TypeClassifier classifier, ExampleGenerator examples, ProcessingMetrics metrics) {
+        this.registry = registry;
+        this.cache = cache;
+        this.xml = xml;
+        this.classifier = classifier;
+        this.examples = examples;
+        this.metrics = metrics;
+    }
+
+    /** A generator of the same kind, but with the root schemas (if any) going to this {@link Raml}. */
+    public BodyGenerator forRaml(Raml raml) {
+        return (registry == null) ? this
+                : new BodyGenerator(new SchemaRegistry(raml), cache, xml, classifier, examples, metrics);
+    }
+
+    public boolean hasRootSchemas() {
+        return registry != null;
+    }
+
+    public void generate(TypeInfo typeInfo, MimeType mimeType, String mediaType) {
+        String schemaName = schemaName(typeInfo, mediaType);
+        if (schemaName != null && registry.contains(schemaName))
+            mimeType.setSchema(schemaName);
+        else
+            mimeType.setSchema(schema(schemaName, generateSchema(typeInfo, mediaType)));
+        mimeType.setExample(generateExample(() -> typeInfo.example(mediaType, examples())));
+    }
+
+    protected String generateSchema(TypeInfo typeInfo, String mediaType) {
+        XmlSchemaGenerator xml = (this.xml == null) ? new XmlSchemaGenerator() : this.xml;
+        TypeClassifier classifier = classifier();
+        Supplier<String> generator = () -> count(Count.SCHEMAS, metrics.time(schemaPhase(mediaType),
+                () -> typeInfo.schema(mediaType, xml, classifier)));
+        if (cache == null)
+            return generator.get();
+        return cache.schema(typeInfo, mediaType, generator);
+    }
+
+    private Phase schemaPhase(String mediaType) {
+        return "xml".equals(SchemaGenerator.schemaKind(mediaType)) ? Phase.XML_SCHEMA : Phase.JSON_SCHEMA;
+    }
+
+    protected String generateExample(Supplier<String> generator) {
+        return count(Count.EXAMPLES, metrics.time(Phase.EXAMPLE, generator));
+    }
+
+    private String count(Count count, String generated) {
+        if (generated != null)
+            metrics.count(count, 1);
+        return generated;
+    }
+
+    protected TypeClassifier classifier() {
+        return (classifier == null) ? new TypeClassifier() : classifier;
+    }
+
+    protected ExampleGenerator examples() {
+        return (examples == null) ? new ExampleGenerator(classifier(), ExampleGenerator.DEFAULT_RECURSION_DEPTH)
+                : examples;
+    }
+
+    protected String schemaName(TypeInfo typeInfo, String mediaType) {
+        return (registry == null) ? null : typeInfo.schemaName(mediaType);
+    }
+
+    /** The schema to set in the body: the schema itself, or the name it's registered as. */
+    protected String schema(String schemaName, String schema) {
+        if (schemaName == null || schema == null)
+            return schema;
+        registry.register(schemaName, schema);
+        return schemaName;
+    }
+
+    /** Wait for all pending generations and apply them. */
+    public void complete() {}
+
+    /**
+     * The {@link ForkJoinPool} shared by a generator and its {@link #forRaml(Raml) copies}; it's started on demand and
+     * shut down when the root generator is {@link #complete() completed}, so no idle threads are left behind.
+     */
+    private static class Pool {
+        private final int parallelism;
+        private ForkJoinPool pool;
+
+        private Pool(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        private synchronized ForkJoinPool get() {
+            if (pool == null)
+                pool = new ForkJoinPool(parallelism);
+            return pool;
+        }
+
+        private synchronized void shutdown() {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+    }
+
+    /**
+     * Forks the generation into the pool, if there is one, or else runs it when completed. XML schemas of a batch
+     * generator are always run when completed, after they have been prepared.
+     */
+    private static class DeferredBodyGenerator extends BodyGenerator {
+        private static final Logger log = LoggerFactory.getLogger(DeferredBodyGenerator.class);
+
+        private class Pending {
+            private final TypeInfo typeInfo;
+            private final MimeType mimeType;
+            private final String schemaName;
+            private final Future<String> schema;
+            private final Future<String> example;
+
+            public Pending(TypeInfo typeInfo, MimeType mimeType, String mediaType) {
+                this.typeInfo = typeInfo;
+                this.mimeType = mimeType;
+                this.schemaName = schemaName(typeInfo, mediaType);
+                this.schema = forkSchema(typeInfo, mediaType);
+                this.example = fork(() -> generateExample(() -> typeInfo.generateExample(mediaType, examples())));
+            }
+
+            private Future<String> forkSchema(TypeInfo typeInfo, String mediaType) {
+                if (schemaName == null)
+                    return forkSchemaTask(typeInfo, mediaType);
+                if (registry.contains(schemaName))
+                    return null;
+                return forkedSchemas.computeIfAbsent(schemaName, name -> forkSchemaTask(typeInfo, mediaType));
+            }
+
+            private Future<String> forkSchemaTask(TypeInfo typeInfo, String mediaType) {
+                Type batchType = (xml != null && xml.isBatch()) ? typeInfo.xmlSchemaType(mediaType) : null;
+                if (batchType == null)
+                    return fork(() -> generateSchema(typeInfo, mediaType));
+                batchTypes.add(batchType);
+                return new FutureTask<>(() -> generateSchema(typeInfo, mediaType));
+            }
+
+            public void apply() {
+                mimeType.setSchema((schema == null) ? schemaName : schema(schemaName, join(schema)));
+                try {
+                    mimeType.setExample(join(example));
+                } catch (RuntimeException e) {
+                    // reported here, so messages are issued in order and from the processor thread
+                    mimeType.setExample(typeInfo.exampleFailed(e));
+                }
+            }
+
+            private String join(Future<String> task) {
+                if (task instanceof FutureTask)
+                    ((FutureTask<String>) task).run(); // does nothing, if it already ran
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException)
+                        throw (RuntimeException) e.getCause();
+                    if (e.getCause() instanceof Error)
+                        throw (Error) e.getCause();
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        }
+
+        private final Pool pool;
+        private final boolean root;
+        private final List<Pending> pending = new ArrayList<>();
+        private final Map<String, Future<String>> forkedSchemas = new HashMap<>();
+        private final List<Type> batchTypes = new ArrayList<>();
+
+        public DeferredBodyGenerator(Pool pool, boolean root, SchemaRegistry registry, SchemaCache cache,
+                XmlSchemaGenerator xml, TypeClassifier classifier, ExampleGenerator examples,
+                ProcessingMetrics metrics) {
+            super(registry, cache, xml, classifier, examples, metrics);
+            this.pool = pool;
+            this.root = root;
+            log.debug("generate bodies with parallelism {}", (pool == null) ? 1 : pool.parallelism);
+        }
+
+        private Future<String> fork(Callable<String> task) {
+            return (pool == null) ? new FutureTask<>(task) : pool.get().submit(task);
+        }
+
+        @Override
+        public BodyGenerator forRaml(Raml raml) {
+            return new DeferredBodyGenerator(pool, false, (registry == null) ? null : new SchemaRegistry(raml), cache,
+                    xml, classifier, examples, metrics);
+        }
+
+        @Override
+        public void generate(TypeInfo typeInfo, MimeType mimeType, String mediaType) {
+            pending.add(new Pending(typeInfo, mimeType, mediaType));
+        }
+
+        @Override
+        public void complete() {
+            log.debug("complete {} pending bodies", pending.size());
+            try {
+                if (!batchTypes.isEmpty())
+                    metrics.run(Phase.XML_SCHEMA_BATCH, () -> xml.prepare(batchTypes));
+                for (Pending body : pending)
+                    body.apply();
+            } finally {
+                pending.clear();
+                forkedSchemas.clear();
+                batchTypes.clear();
+                if (root && pool != null)
+                    pool.shutdown();
+            }
+        }
+    }
+}
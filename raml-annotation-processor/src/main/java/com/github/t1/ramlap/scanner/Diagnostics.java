@@ -0,0 +1,140 @@
+package com.github.t1.ramlap.scanner;
+
+import com.github.t1.exap.reflection.*;
+
+import javax.tools.Diagnostic.Kind;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static javax.tools.Diagnostic.Kind.*;
+
+/**
+ * Reports the notes, warnings, and errors of the scanners on their elements. While {@link #record(Supplier) recording}
+ * (i.e. when the fragment of a type is scanned for the cache), they are also collected, so they can be
+ * {@link #replay(Type, List) replayed} when the fragment is later loaded from the cache instead of being scanned.
+ */
+public class Diagnostics {
+    public static class Diagnostic {
+        private final Kind kind;
+        private final String target;
+        private final String message;
+
+        public Diagnostic(Kind kind, String target, String message) {
+            this.kind = kind;
+            this.target = target;
+            this.message = message;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " on " + target + ": " + message;
+        }
+    }
+
+    /** The result of a {@link #record(Supplier) recorded} task and the diagnostics reported while it ran */
+    public static class Recorded<T> {
+        private final T result;
+        private final List<Diagnostic> diagnostics;
+
+        private Recorded(T result, List<Diagnostic> diagnostics) {
+            this.result = result;
+            this.diagnostics = diagnostics;
+        }
+
+        public T getResult() {
+            return result;
+        }
+
+        public List<Diagnostic> getDiagnostics() {
+            return diagnostics;
+        }
+    }
+
+    private static final ThreadLocal<List<Diagnostic>> RECORDING = new ThreadLocal<>();
+
+    public static void note(Elemental target, String message) {
+        report(NOTE, target, message);
+    }
+
+    public static void warning(Elemental target, String message) {
+        report(WARNING, target, message);
+    }
+
+    public static void error(Elemental target, String message) {
+        report(ERROR, target, message);
+    }
+
+    private static void report(Kind kind, Elemental target, String message) {
+        List<Diagnostic> recording = RECORDING.get();
+        if (recording != null)
+            recording.add(new Diagnostic(kind, target.toString(), message));
+        print(kind, target, message);
+    }
+
+    private static void print(Kind kind, Elemental target, String message) {
+        switch (kind) {
+        case ERROR:
+            target.error(message);
+            break;
+        case WARNING:
+        case MANDATORY_WARNING:
+            target.warning(message);
+            break;
+        default:
+            target.note(message);
+        }
+    }
+
+    /** Run the task and collect the diagnostics it reports in the calling thread */
+    public static <T> Recorded<T> record(Supplier<T> task) {
+        List<Diagnostic> outer = RECORDING.get();
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        RECORDING.set(diagnostics);
+        try {
+            return new Recorded<>(task.get(), diagnostics);
+        } finally {
+            if (outer == null) {
+                RECORDING.remove();
+            } else {
+                outer.addAll(diagnostics);
+                RECORDING.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Report the diagnostics again, on the element of the type with the same name, i.e. the type itself, one of its
+     * methods, or one of their parameters. Diagnostics of other elements, e.g. of a referenced type, are reported on
+     * the type, prefixed with the name of the original target.
+     */
+    public static void replay(Type type, List<Diagnostic> diagnostics) {
+        if (diagnostics.isEmpty())
+            return;
+        Map<String, Elemental> targets = new HashMap<>();
+        targets.put(type.toString(), type);
+        for (Method method : type.getMethods()) {
+            targets.putIfAbsent(method.toString(), method);
+            for (Parameter parameter : method.getParameters())
+                targets.putIfAbsent(parameter.toString(), parameter);
+        }
+        for (Diagnostic diagnostic : diagnostics) {
+            Elemental target = targets.get(diagnostic.getTarget());
+            if (target == null)
+                print(diagnostic.getKind(), type, diagnostic.getTarget() + ": " + diagnostic.getMessage());
+            else
+                print(diagnostic.getKind(), target, diagnostic.getMessage());
+        }
+    }
+}
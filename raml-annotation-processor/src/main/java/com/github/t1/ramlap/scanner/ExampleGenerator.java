@@ -18,9 +18,33 @@ import io.swagger.annotations.ApiModelProperty;
 public class ExampleGenerator {
     private static final Logger log = LoggerFactory.getLogger(ExampleGenerator.class);
 
+    /** Recursive types are not expanded within themselves, by default */
+    public static final int DEFAULT_RECURSION_DEPTH = 1;
+
     public static String example(Type type, String mediaType) {
+        return new ExampleGenerator(new TypeClassifier(), DEFAULT_RECURSION_DEPTH).generate(type, mediaType);
+    }
+
+    private final TypeClassifier classifier;
+    private final int recursionDepth;
+
+    /**
+     * @param classifier to reuse what it already knows from other types
+     * @param recursionDepth how often an object type may be expanded within itself, e.g. 2 for a tree node with the
+     *            children of the children cut off
+     */
+    public ExampleGenerator(TypeClassifier classifier, int recursionDepth) {
+        this.classifier = classifier;
+        this.recursionDepth = recursionDepth;
+    }
+
+    public int getRecursionDepth() {
+        return recursionDepth;
+    }
+
+    public String generate(Type type, String mediaType) {
         if (isMediaType(mediaType, "json"))
-            return new JsonExampleGenerator().generate(type);
+            return new JsonExampleGenerator(classifier, recursionDepth).generate(type);
         // if (isMediaType(mediaType, "xml"))
         // return new XmlExampleGenerator().generate(type);
         return null;
@@ -92,10 +116,22 @@ public class ExampleGenerator {
             }
         }
 
-        private Stack<ItemAdder> fieldStack = new Stack<>();
+        private final Deque<ItemAdder> fieldStack = new ArrayDeque<>();
+        private final int recursionDepth;
 
-        public JsonExampleGenerator() {
-            super(log);
+        public JsonExampleGenerator(TypeClassifier classifier, int recursionDepth) {
+            super(log, classifier);
+            this.recursionDepth = recursionDepth;
+        }
+
+        @Override
+        protected int recursionDepth() {
+            return recursionDepth;
+        }
+
+        @Override
+        protected void visitRecursion(Type type) {
+            log.trace("cut off recursion into {}", type.getFullName());
         }
 
         @Override
@@ -113,57 +149,51 @@ public class ExampleGenerator {
         }
 
         @Override
-        protected void visitField(Field field) {
-            this.fieldStack.push(new ObjectItemAdder(field));
-            try {
-                super.visitField(field);
-            } finally {
-                this.fieldStack.pop();
-            }
+        protected void enterField(Field field) {
+            fieldStack.push(new ObjectItemAdder(field));
         }
 
         @Override
-        protected void visitScalar(Type type) {
-            fieldStack.peek().write();
+        protected void leaveField(Field field) {
+            fieldStack.pop();
         }
 
         @Override
-        protected void visitArray(Type type) {
-            visitSequence(type, () -> super.visitArray(type));
+        protected void visitScalar(Type type) {
+            fieldStack.peek().write();
         }
 
         @Override
-        protected void visitCollection(Type type) {
-            visitSequence(type, () -> super.visitCollection(type));
-        }
-
-        private void visitSequence(Type type, Runnable proceed) {
+        protected void enterSequence(Type type) {
             String startName = fieldName();
             if (startName != null)
                 json.writeStartArray(startName);
-            this.fieldStack.push(new ArrayItemAdder(type, fieldStack.isEmpty() ? null : fieldStack.peek().field));
-            try {
-                proceed.run();
-                if (startName != null)
-                    json.writeEnd();
-            } finally {
-                this.fieldStack.pop();
-            }
+            fieldStack.push(new ArrayItemAdder(type, fieldStack.isEmpty() ? null : fieldStack.peek().field));
         }
 
         @Override
-        protected void visitObject(Type type) {
+        protected void leaveSequence(Type type) {
+            fieldStack.pop();
+            if (fieldName() != null) // the same as when entering
+                json.writeEnd();
+        }
+
+        @Override
+        protected boolean enterObject(Type type) {
             if (!fieldStack.isEmpty()) {
                 Field field = fieldStack.peek().field;
                 if (field == null)
                     json.writeStartObject();
                 else
                     json.writeStartObject(field.getName());
-                super.visitObject(type);
-                json.writeEnd();
-            } else {
-                super.visitObject(type);
             }
+            return true;
+        }
+
+        @Override
+        protected void leaveObject(Type type) {
+            if (!fieldStack.isEmpty())
+                json.writeEnd();
         }
 
         private String fieldName() {
@@ -185,10 +215,8 @@ public class ExampleGenerator {
         }
 
         private String generatedExample(Type type) {
-            if (type.isA(Collection.class))
-                return generatedExample(type.getTypeParameters().get(0));
-            if (type.isArray())
-                return generatedExample(type.elementType());
+            if (type.isA(Collection.class) || type.isArray())
+                return generatedExample(classifier.elementType(type));
             if (type.isBoolean())
                 return "false";
             if (type.isFloating())
@@ -204,7 +232,7 @@ public class ExampleGenerator {
             if (type.isA(URI.class))
                 return "http://example.org/foo";
             if (type.isEnum())
-                return type.getEnumValues().get(0);
+                return classifier.enumValues(type).get(0);
             return "bar";
         }
     }
@@ -2,40 +2,168 @@ package com.github.t1.ramlap.scanner;
 
 import com.github.t1.exap.reflection.*;
 
-import javax.ws.rs.core.Response.*;
-import java.lang.annotation.Annotation;
-import java.net.URI;
-import java.nio.file.Path;
-import java.util.Collection;
-
+import java.util.*;
+
+/**
+ * Visits the fields of a type, recursively, but with an explicit stack of steps instead of nested method calls, so
+ * even deep DTO graphs don't need a bigger thread stack. The subclasses get callbacks for the scalars, and pairs of
+ * <code>enter</code> and <code>leave</code> callbacks for objects, fields, and sequences (arrays and collections).
+ * <p>
+ * An object type that is already being visited as often as the {@link #recursionDepth() recursion depth} allows is
+ * not expanded again, but {@link #visitRecursion(Type) visited as recursion}, so self referencing types don't recurse
+ * endlessly.
+ */
 // TODO this should be merged into the com.github.t1.exap.reflection.TypeVisitor
 public class FieldVisitor {
+    private enum Action {
+        TYPE,
+        FIELD,
+        LEAVE_FIELD,
+        LEAVE_SEQUENCE,
+        LEAVE_OBJECT
+    }
+
+    private static class Step {
+        private final Action action;
+        private final Type type;
+        private final Field field;
+
+        private Step(Action action, Type type, Field field) {
+            this.action = action;
+            this.type = type;
+            this.field = field;
+        }
+
+        @Override
+        public String toString() {
+            return (field == null) ? String.valueOf(type) : field.getName() + " of " + field.getDeclaringType();
+        }
+    }
+
+    protected final TypeClassifier classifier;
+    /** How often each object type is currently being visited */
+    private final Map<String, Integer> path = new HashMap<>();
+
+    public FieldVisitor() {
+        this(new TypeClassifier());
+    }
+
+    public FieldVisitor(TypeClassifier classifier) {
+        this.classifier = classifier;
+    }
+
     protected void visit(Type type) {
-        try {
-            if (type.isBoolean()) {
-                visitBoolean(type);
-            } else if (type.isInteger() || isIntegerWrapper(type)) {
-                visitInteger(type);
-            } else if (type.isFloating()) {
-                visitFloating(type);
-            } else if (type.isString() || isStringWrapper(type) || isJacksonToString(type)) {
-                visitString(type);
-            } else if (type.isEnum()) {
-                visitEnum(type);
-            } else if (type.isArray()) {
-                visitArray(type);
-            } else if (type.isA(Collection.class)) {
-                visitCollection(type);
-            } else {
-                visitObject(type);
+        Deque<Step> steps = new ArrayDeque<>();
+        steps.push(new Step(Action.TYPE, type, null));
+        while (!steps.isEmpty()) {
+            Step step = steps.pop();
+            try {
+                run(step, steps);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("while visiting " + step, e);
+            } catch (Error e) {
+                throw new Error("while visiting " + step, e);
             }
-        } catch (RuntimeException e) {
-            throw new RuntimeException("while visiting " + type, e);
-        } catch (Error e) {
-            throw new Error("while visiting " + type, e);
         }
     }
 
+    private void run(Step step, Deque<Step> steps) {
+        switch (step.action) {
+        case TYPE:
+            visitType(step.type, steps);
+            break;
+        case FIELD:
+            enterField(step.field);
+            steps.push(new Step(Action.LEAVE_FIELD, null, step.field));
+            steps.push(new Step(Action.TYPE, step.field.getType(), null));
+            break;
+        case LEAVE_FIELD:
+            leaveField(step.field);
+            break;
+        case LEAVE_SEQUENCE:
+            leaveSequence(step.type);
+            break;
+        case LEAVE_OBJECT:
+            leaveObject(step.type);
+            leavePath(step.type);
+            break;
+        }
+    }
+
+    private void visitType(Type type, Deque<Step> steps) {
+        switch (classifier.kind(type)) {
+        case BOOLEAN:
+            visitBoolean(type);
+            break;
+        case INTEGER:
+            visitInteger(type);
+            break;
+        case FLOATING:
+            visitFloating(type);
+            break;
+        case STRING:
+            visitString(type);
+            break;
+        case ENUM:
+            visitEnum(type);
+            break;
+        case ARRAY:
+        case COLLECTION:
+            enterSequence(type);
+            steps.push(new Step(Action.LEAVE_SEQUENCE, type, null));
+            steps.push(new Step(Action.TYPE, classifier.elementType(type), null));
+            break;
+        default:
+            visitObject(type, steps);
+        }
+    }
+
+    private void visitObject(Type type, Deque<Step> steps) {
+        if (!enterPath(type)) {
+            visitRecursion(type);
+            return;
+        }
+        if (!enterObject(type)) {
+            leavePath(type);
+            return;
+        }
+        steps.push(new Step(Action.LEAVE_OBJECT, type, null));
+        List<Field> fields = type.getAllFields();
+        for (ListIterator<Field> i = fields.listIterator(fields.size()); i.hasPrevious();) {
+            Field field = i.previous();
+            if (isVisited(type, field))
+                steps.push(new Step(Action.FIELD, null, field));
+        }
+    }
+
+    private boolean enterPath(Type type) {
+        String key = TypeClassifier.typeName(type);
+        Integer depth = path.get(key);
+        if (depth == null)
+            depth = 0;
+        if (depth >= recursionDepth())
+            return false;
+        path.put(key, depth + 1);
+        return true;
+    }
+
+    private void leavePath(Type type) {
+        String key = TypeClassifier.typeName(type);
+        int depth = path.get(key);
+        if (depth == 1)
+            path.remove(key);
+        else
+            path.put(key, depth - 1);
+    }
+
+    /** How often an object type may be expanded within itself; defaults to 1, i.e. not at all */
+    protected int recursionDepth() {
+        return 1;
+    }
+
+    /** An object type that is not expanded again, as it's already being visited */
+    protected void visitRecursion(@SuppressWarnings("unused") Type type) {}
+
     protected void visitBoolean(Type type) {
         visitScalar(type);
     }
@@ -58,68 +186,25 @@ public class FieldVisitor {
 
     protected void visitScalar(@SuppressWarnings("unused") Type type) {}
 
-    protected void visitArray(Type type) {
-        visitSequence(type.elementType());
-    }
+    /** An array or collection; the element type is visited next */
+    protected void enterSequence(@SuppressWarnings("unused") Type type) {}
 
-    protected void visitCollection(Type type) {
-        visitSequence(type.getTypeParameters().get(0));
-    }
+    protected void leaveSequence(@SuppressWarnings("unused") Type type) {}
 
-    protected void visitSequence(Type type) {
-        visit(type);
+    /** @return <code>false</code> to skip the fields of this object, and the call to {@link #leaveObject(Type)} */
+    protected boolean enterObject(@SuppressWarnings("unused") Type type) {
+        return true;
     }
 
-    protected void visitObject(Type type) {
-        for (Field field : type.getAllFields()) {
-            if (field.isStatic() || field.isTransient())
-                continue;
-            visitField(field);
-        }
-    }
+    protected void leaveObject(@SuppressWarnings("unused") Type type) {}
 
-    protected void visitField(Field field) {
-        visit(field.getType());
+    /** Should this field of that type be visited */
+    protected boolean isVisited(@SuppressWarnings("unused") Type type, Field field) {
+        return !field.isStatic() && !field.isTransient();
     }
 
-    private boolean isJacksonToString(Type type) {
-        return isUsing(type, org.codehaus.jackson.map.annotate.JsonSerialize.class,
-                org.codehaus.jackson.map.ser.std.ToStringSerializer.class)
-                || isUsing(type, com.fasterxml.jackson.databind.annotation.JsonSerialize.class,
-                        com.fasterxml.jackson.databind.ser.std.ToStringSerializer.class);
-    }
-
-    private boolean isUsing(Type type, Class<? extends Annotation> annotation, Class<?> serializer) {
-        return type.isAnnotated(annotation)
-                && serializer.getName()
-                        .contentEquals(type.getAnnotationWrapper(annotation).getTypeProperty("using").getFullName());
-    }
-
-    private boolean isIntegerWrapper(Type type) {
-        return type.isA(StatusType.class);
-    }
+    /** The type of the field is visited next */
+    protected void enterField(@SuppressWarnings("unused") Field field) {}
 
-    private boolean isStringWrapper(Type type) {
-        if (type.isA(Path.class) || type.isA(URI.class) || type.isA(Status.class) || type.isA(StatusType.class))
-            return true;
-        return hasToString(type) && hasFromString(type);
-    }
-
-    private boolean hasToString(Type type) {
-        for (Method method : type.getAllMethods())
-            if ("toString".equals(method.getName())
-                    && method.getParameters().isEmpty()
-                    && !method.getDeclaringType().getFullName().equals(Object.class.getName()))
-                return true;
-        return false;
-    }
-
-    private boolean hasFromString(Type type) {
-        for (Method method : type.getStaticMethods())
-            if ("fromString".equals(method.getName())
-                    && method.getParameters().size() == 1 && method.getParameter(0).getType().isString()
-                    && method.isPublic() && method.isStatic())
-                return true;
-        return false;
-    }
+    protected void leaveField(@SuppressWarnings("unused") Field field) {}
 }
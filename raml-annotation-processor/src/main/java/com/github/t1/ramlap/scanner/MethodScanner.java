@@ -25,13 +25,19 @@ public class MethodScanner {
 
     private final Raml raml;
     private final Method method;
+    private final BodyGenerator bodyGenerator;
 
     private Resource resource;
     private Action action;
 
     public MethodScanner(Raml raml, Method method) {
+        this(raml, method, BodyGenerator.DIRECT);
+    }
+
+    public MethodScanner(Raml raml, Method method, BodyGenerator bodyGenerator) {
         this.raml = raml;
         this.method = method;
+        this.bodyGenerator = bodyGenerator;
     }
 
     public void scan() {
@@ -73,7 +79,7 @@ public class MethodScanner {
             action.setResource(resource);
             resource.getActions().put(actionType, action);
         } else {
-            method.note("path not unique");
+            Diagnostics.note(method, "path not unique");
         }
         return action;
     }
@@ -96,7 +102,7 @@ public class MethodScanner {
 
     private void scanParams() {
         for (Parameter parameter : method.getParameters())
-            new ParameterScanner(raml, action, parameter).scan();
+            new ParameterScanner(raml, action, parameter, bodyGenerator).scan();
         markUnresolvedUriParams();
     }
 
@@ -104,7 +110,7 @@ public class MethodScanner {
         Set<String> foundVars = action.getResource().getResolvedUriParameters().keySet();
         for (ResourcePathVariable expectedVar : ResourcePath.of(action.getResource().getUri()).vars())
             if (!foundVars.contains(expectedVar.getName()))
-                method.warning("no path param annotated as '" + expectedVar.getName() + "' found, but required in "
+                Diagnostics.warning(method, "no path param annotated as '" + expectedVar.getName() + "' found, but required in "
                         + action.getType() + " of '" + resource.getUri() + "'");
     }
 
@@ -137,7 +143,7 @@ public class MethodScanner {
     }
 
     private void scanBody(Type responseType, Response response) {
-        new TypeInfo(responseType).applyTo(bodyMap(response), produces());
+        new TypeInfo(responseType, bodyGenerator).applyTo(bodyMap(response), produces());
     }
 
     private Map<String, MimeType> bodyMap(Response response) {
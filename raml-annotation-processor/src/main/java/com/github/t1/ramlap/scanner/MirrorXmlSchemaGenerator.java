@@ -0,0 +1,288 @@
+package com.github.t1.ramlap.scanner;
+
+import com.github.t1.exap.reflection.*;
+import org.slf4j.*;
+
+import javax.xml.bind.annotation.*;
+import java.beans.Introspector;
+import java.math.*;
+import java.util.*;
+
+/**
+ * Generates XML schemas like JAXB does, but from the {@link Type} model, i.e. without loading the classes, so it
+ * works for types compiled in the same round, too. It understands the most common JAXB annotations:
+ * {@link XmlRootElement}, {@link XmlType#name()}, {@link XmlAccessorType} on the class, {@link XmlElement},
+ * {@link XmlAttribute}, and {@link XmlTransient}; the others (e.g. adapters) are ignored.
+ */
+class MirrorXmlSchemaGenerator extends FieldVisitor {
+    private static final Logger log = LoggerFactory.getLogger(MirrorXmlSchemaGenerator.class);
+
+    private static final String DEFAULT = "##default";
+
+    /** A complex type while it's being built */
+    private static class ComplexType {
+        private final String name;
+        private final String accessType;
+        private final List<String> sequence = new ArrayList<>();
+        private final List<String> attributes = new ArrayList<>();
+
+        private ComplexType(String name, String accessType) {
+            this.name = name;
+            this.accessType = accessType;
+        }
+
+        private List<String> lines() {
+            List<String> lines = new ArrayList<>();
+            lines.add("  <xs:complexType name=\"" + name + "\">");
+            if (sequence.isEmpty()) {
+                lines.add("    <xs:sequence/>");
+            } else {
+                lines.add("    <xs:sequence>");
+                lines.addAll(sequence);
+                lines.add("    </xs:sequence>");
+            }
+            lines.addAll(attributes);
+            lines.add("  </xs:complexType>");
+            return lines;
+        }
+    }
+
+    private final List<String> elements = new ArrayList<>();
+    private final Map<String, List<String>> complexTypes = new LinkedHashMap<>();
+    private final Map<String, List<String>> simpleTypes = new LinkedHashMap<>();
+    private final Deque<ComplexType> building = new ArrayDeque<>();
+
+    /** The result of visiting a type: the schema type to refer to */
+    private String typeName;
+    /** The result of visiting a type: is it an array or collection */
+    private boolean repeated;
+
+    public MirrorXmlSchemaGenerator(TypeClassifier classifier) {
+        super(classifier);
+    }
+
+    public String generate(Type type) {
+        log.debug("generate xml schema for {}", type.getFullName());
+        visit(type);
+
+        StringBuilder out = new StringBuilder();
+        out.append("<?xml version=\"1.0\" standalone=\"yes\"?>\n");
+        out.append("<xs:schema version=\"1.0\" xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">\n");
+        for (String element : elements)
+            out.append("\n").append(element).append("\n");
+        for (List<String> lines : complexTypes.values())
+            append(out, lines);
+        for (List<String> lines : simpleTypes.values())
+            append(out, lines);
+        out.append("</xs:schema>\n");
+        return out.toString();
+    }
+
+    private void append(StringBuilder out, List<String> lines) {
+        out.append("\n");
+        for (String line : lines)
+            out.append(line).append("\n");
+    }
+
+    @Override
+    protected void visitBoolean(Type type) {
+        scalar("xs:boolean");
+    }
+
+    @Override
+    protected void visitInteger(Type type) {
+        switch (type.getFullName()) {
+        case "long":
+        case "java.lang.Long":
+            scalar("xs:long");
+            break;
+        case "short":
+        case "java.lang.Short":
+            scalar("xs:short");
+            break;
+        case "byte":
+        case "java.lang.Byte":
+            scalar("xs:byte");
+            break;
+        case "java.math.BigInteger":
+            scalar("xs:integer");
+            break;
+        default:
+            scalar("xs:int");
+        }
+    }
+
+    @Override
+    protected void visitFloating(Type type) {
+        if (type.isA(BigDecimal.class))
+            scalar("xs:decimal");
+        else if ("float".equals(type.getFullName()) || type.isA(Float.class))
+            scalar("xs:float");
+        else
+            scalar("xs:double");
+    }
+
+    @Override
+    protected void visitString(Type type) {
+        scalar("xs:string");
+    }
+
+    @Override
+    protected void visitEnum(Type type) {
+        String name = xmlTypeName(type);
+        if (!simpleTypes.containsKey(name)) {
+            List<String> lines = new ArrayList<>();
+            lines.add("  <xs:simpleType name=\"" + name + "\">");
+            lines.add("    <xs:restriction base=\"xs:string\">");
+            for (String value : classifier.enumValues(type))
+                lines.add("      <xs:enumeration value=\"" + value + "\"/>");
+            lines.add("    </xs:restriction>");
+            lines.add("  </xs:simpleType>");
+            simpleTypes.put(name, lines);
+        }
+        scalar(name);
+    }
+
+    @Override
+    protected void leaveSequence(Type type) {
+        repeated = true;
+    }
+
+    @Override
+    protected boolean enterObject(Type type) {
+        if (type.isA(Date.class) || type.isA(Calendar.class)) {
+            scalar("xs:dateTime");
+            return false;
+        }
+        if (type.getFullName().startsWith("java.")) {
+            scalar("xs:anyType");
+            return false;
+        }
+        String name = xmlTypeName(type);
+        if (complexTypes.containsKey(name)) {
+            scalar(name);
+            return false;
+        }
+        complexTypes.put(name, Collections.<String> emptyList()); // keep the order of discovery
+        rootElement(type, name);
+        building.push(new ComplexType(name, accessType(type)));
+        return true;
+    }
+
+    @Override
+    protected boolean isVisited(Type type, Field field) {
+        if (field.isStatic() || field.isTransient() || field.isAnnotated(XmlTransient.class))
+            return false;
+        return field.isAnnotated(XmlAttribute.class) || isMapped(type, field, building.peek().accessType);
+    }
+
+    @Override
+    protected void leaveField(Field field) {
+        if (field.isAnnotated(XmlAttribute.class))
+            building.peek().attributes.add(attribute(field));
+        else
+            building.peek().sequence.add(element(field));
+    }
+
+    @Override
+    protected void leaveObject(Type type) {
+        ComplexType complexType = building.pop();
+        complexTypes.put(complexType.name, complexType.lines());
+        scalar(complexType.name);
+    }
+
+    @Override
+    protected void visitRecursion(Type type) {
+        scalar(xmlTypeName(type));
+    }
+
+    private void scalar(String name) {
+        this.typeName = name;
+        this.repeated = false;
+    }
+
+    private void rootElement(Type type, String name) {
+        if (!type.isAnnotated(XmlRootElement.class))
+            return;
+        String elementName = type.getAnnotation(XmlRootElement.class).name();
+        if (DEFAULT.equals(elementName))
+            elementName = Introspector.decapitalize(type.getSimpleName());
+        elements.add("  <xs:element name=\"" + elementName + "\" type=\"" + name + "\"/>");
+    }
+
+    private String accessType(Type type) {
+        if (!type.isAnnotated(XmlAccessorType.class))
+            return XmlAccessType.PUBLIC_MEMBER.name();
+        return type.getAnnotationWrapper(XmlAccessorType.class).getEnumProperty("value");
+    }
+
+    private boolean isMapped(Type type, Field field, String accessType) {
+        if (field.isAnnotated(XmlElement.class))
+            return true;
+        switch (XmlAccessType.valueOf(accessType)) {
+        case FIELD:
+            return true;
+        case PROPERTY:
+            return isProperty(type, field);
+        case PUBLIC_MEMBER:
+            return field.isPublic() || isProperty(type, field);
+        default:
+            return false;
+        }
+    }
+
+    private boolean isProperty(Type type, Field field) {
+        String capitalized = Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        boolean getter = false;
+        boolean setter = false;
+        for (Method method : type.getAllMethods()) {
+            if (!method.isPublic() || method.isStatic())
+                continue;
+            String methodName = method.getName();
+            if (method.getParameters().isEmpty()
+                    && (methodName.equals("get" + capitalized) || methodName.equals("is" + capitalized)))
+                getter = true;
+            if (method.getParameters().size() == 1 && methodName.equals("set" + capitalized))
+                setter = true;
+        }
+        return getter && setter;
+    }
+
+    private String element(Field field) {
+        XmlElement annotation = field.getAnnotation(XmlElement.class);
+        String name = (annotation == null || DEFAULT.equals(annotation.name())) ? field.getName() : annotation.name();
+        boolean required = annotation != null && annotation.required();
+        boolean nillable = annotation != null && annotation.nillable();
+
+        StringBuilder out = new StringBuilder();
+        out.append("      <xs:element name=\"").append(name).append("\" type=\"").append(typeName).append("\"");
+        if (nillable || repeated)
+            out.append(" nillable=\"true\"");
+        if (!required && !isPrimitive(field.getType()))
+            out.append(" minOccurs=\"0\"");
+        if (repeated)
+            out.append(" maxOccurs=\"unbounded\"");
+        return out.append("/>").toString();
+    }
+
+    private String attribute(Field field) {
+        XmlAttribute annotation = field.getAnnotation(XmlAttribute.class);
+        String name = DEFAULT.equals(annotation.name()) ? field.getName() : annotation.name();
+
+        return "    <xs:attribute name=\"" + name + "\" type=\"" + typeName + "\""
+                + (annotation.required() ? " use=\"required\"" : "") + "/>";
+    }
+
+    private boolean isPrimitive(Type type) {
+        return !type.getFullName().contains(".") && !type.isArray();
+    }
+
+    private String xmlTypeName(Type type) {
+        if (type.isAnnotated(XmlType.class)) {
+            String name = type.getAnnotation(XmlType.class).name();
+            if (!DEFAULT.equals(name) && !name.isEmpty()) // anonymous types are not supported
+                return name;
+        }
+        return Introspector.decapitalize(type.getSimpleName());
+    }
+}
@@ -19,12 +19,18 @@ public class ParameterScanner {
     private final Raml raml;
     private final Action action;
     private final Parameter parameter;
+    private final BodyGenerator bodyGenerator;
     private int paramAnnotationCount = 0;
 
     public ParameterScanner(Raml raml, Action action, Parameter parameter) {
+        this(raml, action, parameter, BodyGenerator.DIRECT);
+    }
+
+    public ParameterScanner(Raml raml, Action action, Parameter parameter, BodyGenerator bodyGenerator) {
         this.raml = raml;
         this.action = action;
         this.parameter = parameter;
+        this.bodyGenerator = bodyGenerator;
     }
 
     public void scan() {
@@ -35,7 +41,7 @@ public class ParameterScanner {
         scanBody();
 
         if (paramAnnotationCount > 1)
-            parameter.warning("method parameters can be only be annotated as one of "
+            Diagnostics.warning(parameter, "method parameters can be only be annotated as one of "
                     + "path, query, header, cookie, bean, form, or matrix parameter");
     }
 
@@ -53,7 +59,7 @@ public class ParameterScanner {
         Optional<ResourcePathVariable> var = ResourcePath.of(uri).var(uriParamName);
         Resource resource;
         if (!var.isPresent()) {
-            parameter.warning("annotated path param name '" + uriParamName + "' "
+            Diagnostics.warning(parameter, "annotated path param name '" + uriParamName + "' "
                     + "not defined in " + action.getType() + " of '" + uri + "'");
             resource = action.getResource();
         } else {
@@ -116,7 +122,7 @@ public class ParameterScanner {
     }
 
     private TypeInfo typeInfo() {
-        return new TypeInfo(parameter.getType());
+        return new TypeInfo(parameter.getType(), bodyGenerator);
     }
 
     private List<String> mediaTypes() {
@@ -0,0 +1,178 @@
+package com.github.t1.ramlap.scanner;
+
+import javax.json.Json;
+import javax.json.stream.*;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collects the time spent in the phases of a processing run and in scanning each JAX-RS type, some counts, and the
+ * cache hit rates, and writes them as JSON. It's thread safe, so parallel generators can record their times, too; the
+ * phase times are then the sum over all threads. The {@link #DISABLED} metrics record nothing.
+ * <p>
+ * The times are nested: the {@link Phase#SCAN scan} time of a type contains the time of the schemas and examples
+ * generated for it, unless they are deferred (i.e. with parallelism or batched XML schemas), and the
+ * {@link Phase#PROCESSING processing} time contains everything.
+ */
+public class ProcessingMetrics {
+    public static final ProcessingMetrics DISABLED = new ProcessingMetrics(false);
+
+    public enum Phase {
+        PROCESSING,
+        SCAN,
+        JSON_SCHEMA,
+        XML_SCHEMA,
+        XML_SCHEMA_BATCH,
+        EXAMPLE,
+        EMIT
+    }
+
+    public enum Count {
+        TYPES,
+        METHODS,
+        SCHEMAS,
+        EXAMPLES,
+        CLASSIFIED_TYPES
+    }
+
+    private static class Timer {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+
+    private final boolean enabled;
+    private final Map<Phase, Timer> phases = new EnumMap<>(Phase.class);
+    private final Map<Count, LongAdder> counts = new EnumMap<>(Count.class);
+    private final Map<String, Long> types = new ConcurrentSkipListMap<>();
+    private final Map<String, int[]> caches = new ConcurrentSkipListMap<>();
+
+    public ProcessingMetrics() {
+        this(true);
+    }
+
+    private ProcessingMetrics(boolean enabled) {
+        this.enabled = enabled;
+        // all keys are put now, so the maps are only read concurrently
+        for (Phase phase : Phase.values())
+            phases.put(phase, new Timer());
+        for (Count count : Count.values())
+            counts.put(count, new LongAdder());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public <T> T time(Phase phase, Supplier<T> task) {
+        if (!enabled)
+            return task.get();
+        long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            record(phase, System.nanoTime() - start);
+        }
+    }
+
+    public void run(Phase phase, Runnable task) {
+        time(phase, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public void record(Phase phase, long nanos) {
+        if (!enabled)
+            return;
+        Timer timer = phases.get(phase);
+        timer.calls.increment();
+        timer.nanos.add(nanos);
+    }
+
+    /** Record the {@link Phase#SCAN scan} time of this type and count it */
+    public void scanned(String typeName, long nanos) {
+        if (!enabled)
+            return;
+        record(Phase.SCAN, nanos);
+        count(Count.TYPES, 1);
+        types.merge(typeName, nanos, Long::sum);
+    }
+
+    public void count(Count count, long n) {
+        if (enabled)
+            counts.get(count).add(n);
+    }
+
+    public void cache(String name, int hits, int misses) {
+        if (enabled)
+            caches.put(name, new int[] { hits, misses });
+    }
+
+    public long getCalls(Phase phase) {
+        return phases.get(phase).calls.sum();
+    }
+
+    public long getNanos(Phase phase) {
+        return phases.get(phase).nanos.sum();
+    }
+
+    public long getCount(Count count) {
+        return counts.get(count).sum();
+    }
+
+    public void writeJson(Writer out) {
+        Map<String, Object> properties = new HashMap<>(1);
+        properties.put(JsonGenerator.PRETTY_PRINTING, true);
+        try (JsonGenerator json = Json.createGeneratorFactory(properties).createGenerator(out)) {
+            json.writeStartObject();
+
+            json.writeStartObject("phases");
+            for (Phase phase : Phase.values())
+                json.writeStartObject(key(phase))
+                        .write("calls", getCalls(phase))
+                        .write("millis", millis(getNanos(phase)))
+                        .writeEnd();
+            json.writeEnd();
+
+            json.writeStartObject("counts");
+            for (Count count : Count.values())
+                json.write(key(count), getCount(count));
+            json.writeEnd();
+
+            json.writeStartObject("caches");
+            for (Map.Entry<String, int[]> entry : caches.entrySet()) {
+                int hits = entry.getValue()[0];
+                int misses = entry.getValue()[1];
+                json.writeStartObject(entry.getKey())
+                        .write("hits", hits)
+                        .write("misses", misses)
+                        .write("hitRate", (hits + misses == 0) ? 0 : (double) hits / (hits + misses))
+                        .writeEnd();
+            }
+            json.writeEnd();
+
+            json.writeStartObject("typeMillis");
+            for (Map.Entry<String, Long> entry : types.entrySet())
+                json.write(entry.getKey(), millis(entry.getValue()));
+            json.writeEnd();
+
+            json.writeEnd();
+        }
+    }
+
+    private static BigDecimal millis(long nanos) {
+        return BigDecimal.valueOf(nanos / 1000, 3);
+    }
+
+    /** <code>XML_SCHEMA_BATCH</code> -> <code>xmlSchemaBatch</code> */
+    private static String key(Enum<?> value) {
+        StringBuilder out = new StringBuilder();
+        for (String word : value.name().toLowerCase(Locale.US).split("_"))
+            out.append((out.length() == 0) ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+        return out.toString();
+    }
+}
@@ -16,6 +16,11 @@ public abstract class PropertiesToJsonGenerator extends FieldVisitor {
     protected JsonGenerator json;
 
     public PropertiesToJsonGenerator(Logger log) {
+        this(log, new TypeClassifier());
+    }
+
+    public PropertiesToJsonGenerator(Logger log, TypeClassifier classifier) {
+        super(classifier);
         this.log = log;
     }
 
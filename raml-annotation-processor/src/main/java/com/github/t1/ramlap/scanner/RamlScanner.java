@@ -10,7 +10,7 @@ import org.raml.model.Resource;
 import org.raml.model.parameter.UriParameter;
 import org.slf4j.*;
 
-import java.util.TreeMap;
+import java.util.*;
 
 import static com.github.t1.ramlap.tools.StringTools.*;
 
@@ -18,12 +18,114 @@ public class RamlScanner {
     private static final Logger log = LoggerFactory.getLogger(RamlScanner.class);
 
     private final Raml raml = new XRaml();
+    private int parallelism = 1;
+    private SchemaRegistry schemaRegistry;
+    private SchemaCache schemaCache = new SchemaCache();
+    private boolean xmlSchemaBatch = false;
+    private boolean xmlSchemaMirrors = false;
+    private XmlSchemaGenerator xmlSchemaGenerator = new XmlSchemaGenerator();
+    private final TypeClassifier classifier = new TypeClassifier();
+    private ExampleGenerator exampleGenerator =
+            new ExampleGenerator(classifier, ExampleGenerator.DEFAULT_RECURSION_DEPTH);
+    private ProcessingMetrics metrics = ProcessingMetrics.DISABLED;
+    private BodyGenerator bodyGenerator = bodyGenerator();
 
     public RamlScanner() {
         raml.setTitle("");
         raml.setResources(new TreeMap<>()); // sort keys
     }
 
+    /**
+     * Generate the schemas and examples with this parallelism. The rest of the scanning stays in the calling thread
+     * and the results are applied in order, when the {@link #getResult() result} is requested, so the output is the
+     * same as when scanning serially. Note that the generators then concurrently read the type model.
+     */
+    public RamlScanner parallelism(int parallelism) {
+        this.parallelism = parallelism;
+        this.bodyGenerator = bodyGenerator();
+        return this;
+    }
+
+    /** Generate every schema only once, put it into the root of the RAML, and refer to it by name from the bodies. */
+    public RamlScanner rootSchemas() {
+        this.schemaRegistry = new SchemaRegistry(raml);
+        this.bodyGenerator = bodyGenerator();
+        return this;
+    }
+
+    /** Cache at most that many generated schemas; <code>0</code> disables the cache. */
+    public RamlScanner schemaCacheSize(int maxSize) {
+        this.schemaCache = (maxSize <= 0) ? null : new SchemaCache(maxSize);
+        this.bodyGenerator = bodyGenerator();
+        return this;
+    }
+
+    /**
+     * Generate the XML schemas of all bodies with one JAXB context, when the {@link #getResult() result} is requested,
+     * instead of one context per type.
+     */
+    public RamlScanner xmlSchemaBatch() {
+        this.xmlSchemaBatch = true;
+        this.xmlSchemaGenerator = new XmlSchemaGenerator(xmlSchemaBatch, xmlSchemaMirrors);
+        this.bodyGenerator = bodyGenerator();
+        return this;
+    }
+
+    /**
+     * Generate the XML schemas from the type model instead of loading the classes and using JAXB. This is faster and
+     * works for all types, but it supports only the most common JAXB annotations.
+     */
+    public RamlScanner xmlSchemaMirrors() {
+        this.xmlSchemaMirrors = true;
+        this.xmlSchemaGenerator = new XmlSchemaGenerator(xmlSchemaBatch, xmlSchemaMirrors);
+        this.bodyGenerator = bodyGenerator();
+        return this;
+    }
+
+    /** Expand recursive types in examples that often within themselves */
+    public RamlScanner exampleRecursionDepth(int recursionDepth) {
+        this.exampleGenerator = new ExampleGenerator(classifier, recursionDepth);
+        this.bodyGenerator = bodyGenerator();
+        return this;
+    }
+
+    /** Record the scan times and counts in these metrics */
+    public RamlScanner metrics(ProcessingMetrics metrics) {
+        this.metrics = metrics;
+        this.bodyGenerator = bodyGenerator();
+        return this;
+    }
+
+    private BodyGenerator bodyGenerator() {
+        return BodyGenerator.of(parallelism, schemaRegistry, schemaCache, xmlSchemaGenerator, classifier,
+                exampleGenerator, metrics);
+    }
+
+    public ProcessingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** The number of types analyzed by the {@link TypeClassifier} so far */
+    public int getClassifiedTypeCount() {
+        return classifier.size();
+    }
+
+    public SchemaCache getSchemaCache() {
+        return schemaCache;
+    }
+
+    public boolean hasRootSchemas() {
+        return schemaRegistry != null;
+    }
+
+    /** The settings that change the output of the scanner, e.g. to decide if cached fragments can be used */
+    public String getOutputSettings() {
+        return "rootSchemas=" + hasRootSchemas()
+                + ",xmlSchemaBatch=" + xmlSchemaBatch
+                + ",xmlSchemaMirrors=" + xmlSchemaMirrors
+                + ",exampleRecursionDepth=" + exampleGenerator.getRecursionDepth();
+    }
+
     public void scan(SwaggerDefinition swaggerDefinition) {
         String basePath = swaggerDefinition.basePath();
         if (!basePath.isEmpty()) {
@@ -57,20 +159,90 @@ public class RamlScanner {
 
     public RamlScanner scanJaxRsType(Type type) {
         log.debug("scan type {}", type.getFullName());
+        long start = System.nanoTime();
 
         scanBasic(type);
 
         type.accept(new TypeVisitor() {
             @Override
             public void visit(Method method) {
-                new MethodScanner(raml, method).scan();
+                metrics.count(ProcessingMetrics.Count.METHODS, 1);
+                new MethodScanner(raml, method, bodyGenerator).scan();
             }
         });
 
+        metrics.scanned(type.getFullName(), System.nanoTime() - start);
         log.debug("processed {}", type.getFullName());
         return this;
     }
 
+    /**
+     * Scan a JAX-RS type into a separate {@link Raml} that contains only what this type contributes, so it can be
+     * cached and later {@link #merge(Type, Raml) merged} into the result.
+     */
+    public Raml scanJaxRsTypeFragment(Type type) {
+        RamlScanner fragment = new RamlScanner();
+        fragment.raml.setMediaType(raml.getMediaType());
+        fragment.metrics = metrics;
+        fragment.bodyGenerator = bodyGenerator.forRaml(fragment.raml);
+        fragment.scanJaxRsType(type);
+        return fragment.getResult();
+    }
+
+    /**
+     * Merge the resources of a fragment of the type (as returned by {@link #scanJaxRsTypeFragment(Type)}) into the
+     * result, just like {@link #scanJaxRsType(Type)} would: an action with the same path and method as an action of a
+     * type merged before is merged into that action, and a note is reported on the type. This happens on every merge,
+     * so the note doesn't have to be cached.
+     */
+    public RamlScanner merge(Type type, Raml fragment) {
+        if (!fragment.getSchemas().isEmpty()) {
+            if (schemaRegistry == null)
+                schemaRegistry = new SchemaRegistry(raml);
+            schemaRegistry.registerAll(fragment);
+        }
+        for (Resource resource : fragment.getResources().values())
+            merge(type, null, resource);
+        return this;
+    }
+
+    private void merge(Type type, ResourcePath parent, Resource from) {
+        ResourcePath path =
+                (parent == null) ? ResourcePath.of(from.getRelativeUri()) : parent.and(from.getRelativeUri());
+        Resource to = path.resource(raml);
+        if (from.getDisplayName() != null)
+            to.setDisplayName(from.getDisplayName());
+        if (from.getDescription() != null)
+            to.setDescription(from.getDescription());
+        from.getUriParameters().forEach(to.getUriParameters()::putIfAbsent);
+        for (Action action : from.getActions().values()) {
+            Action existing = to.getAction(action.getType());
+            if (existing == null) {
+                action.setResource(to);
+                to.getActions().put(action.getType(), action);
+            } else {
+                Diagnostics.note(type, "path not unique: " + action.getType() + " " + to.getUri());
+                merge(action, existing);
+            }
+        }
+        for (Resource child : from.getResources().values())
+            merge(type, path, child);
+    }
+
+    /** Like the {@link MethodScanner} scans a method into an existing action: the later one wins for every key */
+    private void merge(Action from, Action to) {
+        to.setDisplayName(from.getDisplayName());
+        to.setDescription(from.getDescription());
+        to.getQueryParameters().putAll(from.getQueryParameters());
+        to.getHeaders().putAll(from.getHeaders());
+        if (from.getBody() != null) {
+            if (to.getBody() == null)
+                to.setBody(new LinkedHashMap<>());
+            to.getBody().putAll(from.getBody());
+        }
+        to.getResponses().putAll(from.getResponses());
+    }
+
     private void scanBasic(Type type) {
         Resource resource = ResourcePath.of(type).resource(raml);
         resource.setDisplayName(displayName(type));
@@ -99,6 +271,7 @@ public class RamlScanner {
     }
 
     public Raml getResult() {
+        bodyGenerator.complete();
         return raml;
     }
 }
@@ -141,10 +141,10 @@ public abstract class ResponseScanner {
                     return new NonStandardStatus(code);
                 Status statusFromAnnotation = getStatus();
                 if (statusFromAnnotation != ApiResponse.DEFAULT_STATUS && !statusFromAnnotation.equals(statusFromCode))
-                    annotationWrapper.error("Conflicting specification of status " + statusFromAnnotation
+                    Diagnostics.error(annotationWrapper, "Conflicting specification of status " + statusFromAnnotation
                             + " and status code " + code + ". You should just use the status.");
                 else
-                    annotationWrapper.warning("Status code " + code + " is defined as '" + statusFromCode + "'. "
+                    Diagnostics.warning(annotationWrapper, "Status code " + code + " is defined as '" + statusFromCode + "'. "
                             + "You should use the constant instead.");
                 return statusFromCode;
             }
@@ -0,0 +1,69 @@
+package com.github.t1.ramlap.scanner;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the generated schemas of a processing run, so types that are used in many bodies (like paging wrappers or
+ * problem details) are generated only once. The key is the full type name (including type parameters) and the kind
+ * of schema, i.e. json or xml. The least recently used schemas are evicted, when the maximum size is exceeded.
+ */
+public class SchemaCache {
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final Map<String, String> schemas;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public SchemaCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public SchemaCache(int maxSize) {
+        this.schemas = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public String schema(TypeInfo typeInfo, String mediaType) {
+        return schema(typeInfo, mediaType, () -> typeInfo.schema(mediaType));
+    }
+
+    /** Use the generator on a miss */
+    public String schema(TypeInfo typeInfo, String mediaType, Supplier<String> generator) {
+        String key = typeInfo.schemaName(mediaType);
+        if (key == null)
+            return generator.get();
+        synchronized (schemas) {
+            if (schemas.containsKey(key)) {
+                hits.incrementAndGet();
+                return schemas.get(key);
+            }
+        }
+        misses.incrementAndGet();
+        String schema = generator.get(); // outside the lock, so parallel generators don't block
+        synchronized (schemas) {
+            schemas.put(key, schema);
+        }
+        return schema;
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SchemaCache: " + getHits() + " hits, " + getMisses() + " misses";
+    }
+}
@@ -1,11 +1,5 @@
 package com.github.t1.ramlap.scanner;
 
-import java.io.*;
-
-import javax.xml.bind.*;
-import javax.xml.transform.Result;
-import javax.xml.transform.stream.StreamResult;
-
 import org.slf4j.*;
 
 import com.github.t1.exap.JavaDoc;
@@ -18,10 +12,28 @@ public class SchemaGenerator {
 
     /** we don't use the MediaType class, as that would require a dependency on e.g. the glassfish RI */
     public static String schema(Type type, String mediaType) {
+        return schema(type, mediaType, new XmlSchemaGenerator(), new TypeClassifier());
+    }
+
+    /**
+     * Use that {@link XmlSchemaGenerator} and {@link TypeClassifier}, so they can reuse what they already know from
+     * other types.
+     */
+    public static String schema(Type type, String mediaType, XmlSchemaGenerator xml, TypeClassifier classifier) {
+        String kind = schemaKind(mediaType);
+        if ("json".equals(kind))
+            return new JsonSchemaGenerator(classifier).generate(type);
+        if ("xml".equals(kind))
+            return xml.generate(type, classifier);
+        return null;
+    }
+
+    /** The kind of schema for this media type, i.e. <code>json</code> or <code>xml</code>, or <code>null</code> */
+    public static String schemaKind(String mediaType) {
         if (isMediaType(mediaType, "json"))
-            return new JsonSchemaGenerator().generate(type);
+            return "json";
         if (isMediaType(mediaType, "xml"))
-            return new XmlSchemaGenerator(type).generate();
+            return "xml";
         return null;
     }
 
@@ -34,8 +46,8 @@ public class SchemaGenerator {
      * @see <a href="http://spacetelescope.github.io/understanding-json-schema/index.html">web</a>
      */
     private static class JsonSchemaGenerator extends PropertiesToJsonGenerator {
-        public JsonSchemaGenerator() {
-            super(log);
+        public JsonSchemaGenerator(TypeClassifier classifier) {
+            super(log, classifier);
         }
 
         @Override
@@ -90,51 +102,62 @@ public class SchemaGenerator {
             log.trace("write enum");
             json.write("type", "string");
             json.writeStartArray("enum");
-            for (String enumValue : type.getEnumValues())
+            for (String enumValue : classifier.enumValues(type))
                 json.write(enumValue);
             json.writeEnd();
         }
 
         @Override
-        protected void visitArray(Type type) {
-            log.trace("write array");
+        protected void enterSequence(Type type) {
+            log.trace("write {}", type.isArray() ? "array" : "collection");
             json.write("type", "array");
             json.writeStartObject("items");
-            super.visitArray(type);
-            json.writeEnd();
         }
 
         @Override
-        protected void visitCollection(Type type) {
-            log.trace("write collection");
-            json.write("type", "array");
-            json.writeStartObject("items");
-            super.visitCollection(type);
+        protected void leaveSequence(Type type) {
             json.writeEnd();
         }
 
         @Override
-        protected void visitObject(Type type) {
+        protected void visitRecursion(Type type) {
+            log.trace("write reference to {}", type.getFullName());
+            json.write("$ref", id(type));
+        }
+
+        @Override
+        protected boolean enterObject(Type type) {
             log.trace("write object");
             json.write("type", "object");
             writeId(type);
             if (type.isAnnotated(JavaDoc.class))
                 json.write("description", type.getAnnotation(JavaDoc.class).value());
             json.writeStartObject("properties");
-            super.visitObject(type);
+            return true;
+        }
+
+        @Override
+        protected void leaveObject(Type type) {
             json.writeEnd();
         }
 
         @Override
-        protected void visitField(Field field) {
+        protected void enterField(Field field) {
             json.writeStartObject(field.getName());
-            super.visitField(field);
+        }
+
+        @Override
+        protected void leaveField(Field field) {
             writeDescription(field);
             json.writeEnd();
         }
 
         private void writeId(Type type) {
-            json.write("id", "urn:jsonschema:" + type.getFullName().replace('.', ':').replace('$', ':'));
+            json.write("id", id(type));
+        }
+
+        private String id(Type type) {
+            return "urn:jsonschema:" + type.getFullName().replace('.', ':').replace('$', ':');
         }
 
         private void writeDescription(Field field) {
@@ -147,33 +170,4 @@ public class SchemaGenerator {
             }
         }
     }
-
-    private static class XmlSchemaGenerator {
-        private final Type type;
-
-        public XmlSchemaGenerator(Type type) {
-            this.type = type;
-        }
-
-        public String generate() {
-            final StringWriter string = new StringWriter();
-
-            try {
-                Class<?> javaType = Class.forName(type.getFullName());
-                JAXBContext context = JAXBContext.newInstance(javaType);
-                context.generateSchema(new SchemaOutputResolver() {
-                    @Override
-                    public Result createOutput(String namespaceUri, String suggestedFileName) {
-                        StreamResult result = new StreamResult(string);
-                        result.setSystemId("dummy");
-                        return result;
-                    }
-                });
-            } catch (ClassNotFoundException | JAXBException | IOException e) {
-                throw new RuntimeException(e);
-            }
-            return (string.toString().isEmpty()) ? null : (string.toString().trim() + "\n");
-        }
-    }
 }
-
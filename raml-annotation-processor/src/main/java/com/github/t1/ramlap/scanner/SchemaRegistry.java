@@ -0,0 +1,39 @@
+package com.github.t1.ramlap.scanner;
+
+import org.raml.model.Raml;
+
+import java.util.*;
+
+import static java.util.Collections.*;
+
+/**
+ * The schemas at the root of a {@link Raml}, so every schema is generated and written only once, and the bodies refer
+ * to it by name.
+ */
+public class SchemaRegistry {
+    private final Raml raml;
+    private final Set<String> names = new HashSet<>();
+
+    public SchemaRegistry(Raml raml) {
+        this.raml = raml;
+        for (Map<String, String> schemas : raml.getSchemas())
+            names.addAll(schemas.keySet());
+    }
+
+    public boolean contains(String name) {
+        return names.contains(name);
+    }
+
+    /** Add the schema with this name, if there is none, yet. */
+    public void register(String name, String schema) {
+        if (names.add(name))
+            raml.getSchemas().add(singletonMap(name, schema));
+    }
+
+    /** Register all schemas of the other {@link Raml}, e.g. a fragment to be merged into this one. */
+    public void registerAll(Raml other) {
+        for (Map<String, String> schemas : other.getSchemas())
+            for (Map.Entry<String, String> entry : schemas.entrySet())
+                register(entry.getKey(), entry.getValue());
+    }
+}
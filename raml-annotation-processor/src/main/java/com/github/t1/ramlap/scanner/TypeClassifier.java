@@ -0,0 +1,146 @@
+package com.github.t1.ramlap.scanner;
+
+import com.github.t1.exap.reflection.*;
+
+import javax.ws.rs.core.Response.*;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides how the {@link FieldVisitor}s handle a type, and remembers it, so each type is analyzed only once, even if
+ * it's used in many fields. Finding string wrappers, e.g., requires looking at all methods of a type. Share one
+ * classifier for a processing run, so all generators profit from it. It's thread safe.
+ */
+public class TypeClassifier {
+    public enum Kind {
+        BOOLEAN,
+        INTEGER,
+        FLOATING,
+        STRING,
+        ENUM,
+        ARRAY,
+        COLLECTION,
+        OBJECT
+    }
+
+    private static class Classification {
+        private final Kind kind;
+        private final Type elementType;
+        private final List<String> enumValues;
+
+        private Classification(Kind kind, Type elementType, List<String> enumValues) {
+            this.kind = kind;
+            this.elementType = elementType;
+            this.enumValues = enumValues;
+        }
+    }
+
+    /**
+     * The full name of the type, including the type parameters, e.g. <code>java.util.List&lt;foo.Bar&gt;</code>
+     */
+    static String typeName(Type type) {
+        if (type.isArray())
+            return typeName(type.elementType()) + "[]";
+        StringBuilder out = new StringBuilder(type.getFullName());
+        List<Type> typeParameters = type.getTypeParameters();
+        if (!typeParameters.isEmpty()) {
+            out.append('<');
+            for (int i = 0; i < typeParameters.size(); i++)
+                out.append((i == 0) ? "" : ",").append(typeName(typeParameters.get(i)));
+            out.append('>');
+        }
+        return out.toString();
+    }
+
+    private final Map<String, Classification> classifications = new ConcurrentHashMap<>();
+
+    public Kind kind(Type type) {
+        return classification(type).kind;
+    }
+
+    /** The type of the elements of an array or collection; <code>null</code> for all other types */
+    public Type elementType(Type type) {
+        return classification(type).elementType;
+    }
+
+    /** The values of an enum; <code>null</code> for all other types */
+    public List<String> enumValues(Type type) {
+        return classification(type).enumValues;
+    }
+
+    public int size() {
+        return classifications.size();
+    }
+
+    private Classification classification(Type type) {
+        String key = typeName(type);
+        Classification classification = classifications.get(key);
+        if (classification == null) {
+            classification = classify(type);
+            classifications.put(key, classification);
+        }
+        return classification;
+    }
+
+    private Classification classify(Type type) {
+        if (type.isBoolean())
+            return new Classification(Kind.BOOLEAN, null, null);
+        if (type.isInteger() || isIntegerWrapper(type))
+            return new Classification(Kind.INTEGER, null, null);
+        if (type.isFloating())
+            return new Classification(Kind.FLOATING, null, null);
+        if (type.isString() || isStringWrapper(type) || isJacksonToString(type))
+            return new Classification(Kind.STRING, null, null);
+        if (type.isEnum())
+            return new Classification(Kind.ENUM, null, Collections.unmodifiableList(type.getEnumValues()));
+        if (type.isArray())
+            return new Classification(Kind.ARRAY, type.elementType(), null);
+        if (type.isA(Collection.class))
+            return new Classification(Kind.COLLECTION, type.getTypeParameters().get(0), null);
+        return new Classification(Kind.OBJECT, null, null);
+    }
+
+    private boolean isJacksonToString(Type type) {
+        return isUsing(type, org.codehaus.jackson.map.annotate.JsonSerialize.class,
+                org.codehaus.jackson.map.ser.std.ToStringSerializer.class)
+                || isUsing(type, com.fasterxml.jackson.databind.annotation.JsonSerialize.class,
+                        com.fasterxml.jackson.databind.ser.std.ToStringSerializer.class);
+    }
+
+    private boolean isUsing(Type type, Class<? extends Annotation> annotation, Class<?> serializer) {
+        return type.isAnnotated(annotation)
+                && serializer.getName()
+                        .contentEquals(type.getAnnotationWrapper(annotation).getTypeProperty("using").getFullName());
+    }
+
+    private boolean isIntegerWrapper(Type type) {
+        return type.isA(StatusType.class);
+    }
+
+    private boolean isStringWrapper(Type type) {
+        if (type.isA(Path.class) || type.isA(URI.class) || type.isA(Status.class) || type.isA(StatusType.class))
+            return true;
+        return hasToString(type) && hasFromString(type);
+    }
+
+    private boolean hasToString(Type type) {
+        for (Method method : type.getAllMethods())
+            if ("toString".equals(method.getName())
+                    && method.getParameters().isEmpty()
+                    && !method.getDeclaringType().getFullName().equals(Object.class.getName()))
+                return true;
+        return false;
+    }
+
+    private boolean hasFromString(Type type) {
+        for (Method method : type.getStaticMethods())
+            if ("fromString".equals(method.getName())
+                    && method.getParameters().size() == 1 && method.getParameter(0).getType().isString()
+                    && method.isPublic() && method.isStatic())
+                return true;
+        return false;
+    }
+}
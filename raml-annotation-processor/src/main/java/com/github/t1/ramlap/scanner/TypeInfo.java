@@ -22,9 +22,15 @@ public class TypeInfo {
             Pattern.compile("(?<type>[^/]*)/(?<subtype>[^;]*)(;(?<params>.*))?");
 
     private final Type type;
+    private final BodyGenerator bodyGenerator;
 
     public TypeInfo(Type type) {
+        this(type, BodyGenerator.DIRECT);
+    }
+
+    public TypeInfo(Type type, BodyGenerator bodyGenerator) {
         this.type = requireNonNull(type);
+        this.bodyGenerator = requireNonNull(bodyGenerator);
     }
 
     public void applyTo(AbstractParam param) {
@@ -65,13 +71,31 @@ public class TypeInfo {
     private void applyTo(MimeType mimeType, String mediaType) {
         if (isSimple())
             mimeType.setType(paramType().name().toLowerCase(US));
-        // TODO add schema to raml root and link from here
-        mimeType.setSchema(schema(mediaType));
-        mimeType.setExample(example(mediaType));
+        bodyGenerator.generate(this, mimeType, mediaType);
+    }
+
+    String schema(String mediaType) {
+        return schema(mediaType, new XmlSchemaGenerator(), new TypeClassifier());
+    }
+
+    String schema(String mediaType, XmlSchemaGenerator xml, TypeClassifier classifier) {
+        return isSimple() || isUnspecific() ? null : SchemaGenerator.schema(type, mediaType, xml, classifier);
     }
 
-    private String schema(String mediaType) {
-        return isSimple() || isUnspecific() ? null : SchemaGenerator.schema(type, mediaType);
+    /** The type to prepare the XML schema for; <code>null</code> if there is no XML schema for this media type. */
+    Type xmlSchemaType(String mediaType) {
+        return "xml".equals(SchemaGenerator.schemaKind(mediaType)) && !isSimple() && !isUnspecific() ? type : null;
+    }
+
+    /**
+     * The name of the schema in the root of the RAML, derived from the type, e.g. <code>java.util.List&lt;foo.Bar&gt;</code>
+     * for JSON, or <code>foo.Bar-xml</code> for XML; <code>null</code> if there is no schema.
+     */
+    String schemaName(String mediaType) {
+        String kind = SchemaGenerator.schemaKind(mediaType);
+        if (kind == null || isSimple() || isUnspecific())
+            return null;
+        return TypeClassifier.typeName(type) + ("json".equals(kind) ? "" : "-" + kind);
     }
 
     private boolean isUnspecific() {
@@ -92,22 +116,35 @@ public class TypeInfo {
         return type.isBoolean() || type.isNumber() || type.isString();
     }
 
-    private String example(String mediaType) {
-        if (isSimple() || isUnspecific())
-            return null;
+    String example(String mediaType) {
+        return example(mediaType,
+                new ExampleGenerator(new TypeClassifier(), ExampleGenerator.DEFAULT_RECURSION_DEPTH));
+    }
+
+    String example(String mediaType, ExampleGenerator examples) {
         try {
-            return ExampleGenerator.example(type, mediaType);
+            return generateExample(mediaType, examples);
         } catch (RuntimeException e) {
-            String message = "failed to generate example for " + type + ": " + e.getMessage();
-            if (RamlAnnotationProcessor.isStrict()) {
-                log.error(message, e);
-                type.error(message);
-            } else {
-                log.warn(message, e);
-                type.warning(message);
-            }
+            return exampleFailed(e);
+        }
+    }
+
+    String generateExample(String mediaType, ExampleGenerator examples) {
+        if (isSimple() || isUnspecific())
             return null;
+        return examples.generate(type, mediaType);
+    }
+
+    String exampleFailed(RuntimeException e) {
+        String message = "failed to generate example for " + type + ": " + e.getMessage();
+        if (RamlAnnotationProcessor.isStrict()) {
+            log.error(message, e);
+            Diagnostics.error(type, message);
+        } else {
+            log.warn(message, e);
+            Diagnostics.warning(type, message);
         }
+        return null;
     }
 
     @Override
@@ -0,0 +1,286 @@
+package com.github.t1.ramlap.scanner;
+
+import com.github.t1.exap.reflection.Type;
+import org.slf4j.*;
+
+import javax.xml.bind.*;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.transform.stream.StreamResult;
+import java.beans.Introspector;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.*;
+
+/**
+ * Generates XML schemas with JAXB. Creating a {@link JAXBContext} is expensive, so the schemas are kept for the
+ * lifetime of this generator, i.e. the processing run, and each type needs a context only once.
+ * <p>
+ * When {@link #prepare(Collection) prepared} with several types, only one context is created for all of them, and
+ * the resulting schema is split into the components reachable from each type. The components are the same as when
+ * generating the schema for each type separately, but their order may differ. Types that can't be split (e.g. with
+ * multiple namespaces or names unknown to JAXB) are generated separately, when requested.
+ * <p>
+ * Types that can't be loaded (e.g. because they are compiled in the same round) are generated by the
+ * {@link MirrorXmlSchemaGenerator}. It can also be used for all types, so no classes are loaded and no JAXB is
+ * bootstrapped at all; the schemas are then approximations, as it doesn't support all JAXB features.
+ */
+public class XmlSchemaGenerator {
+    private static final Logger log = LoggerFactory.getLogger(XmlSchemaGenerator.class);
+
+    private static final String NO_SCHEMA = "";
+
+    private final boolean batch;
+    private final boolean mirrors;
+    private final Map<String, String> schemas = new ConcurrentHashMap<>();
+
+    public XmlSchemaGenerator() {
+        this(false, false);
+    }
+
+    /**
+     * @param batch should the users {@link #prepare(Collection) prepare} the types in batches
+     * @param mirrors generate all schemas with the {@link MirrorXmlSchemaGenerator} instead of JAXB
+     */
+    public XmlSchemaGenerator(boolean batch, boolean mirrors) {
+        this.batch = batch && !mirrors;
+        this.mirrors = mirrors;
+    }
+
+    public boolean isBatch() {
+        return batch;
+    }
+
+    public String generate(Type type) {
+        return generate(type, new TypeClassifier());
+    }
+
+    /** The classifier is only used for the {@link MirrorXmlSchemaGenerator} */
+    public String generate(Type type, TypeClassifier classifier) {
+        String schema = schemas.get(type.getFullName());
+        if (schema == null) {
+            schema = (mirrors) ? new MirrorXmlSchemaGenerator(classifier).generate(type)
+                    : generateWithJaxb(type, classifier);
+            schemas.put(type.getFullName(), (schema == null) ? NO_SCHEMA : schema);
+        }
+        return (schema == null || schema.isEmpty()) ? null : schema;
+    }
+
+    private String generateWithJaxb(Type type, TypeClassifier classifier) {
+        Class<?> javaType;
+        try {
+            javaType = Class.forName(type.getFullName());
+        } catch (ClassNotFoundException e) {
+            log.debug("can't load {}; generate xml schema from the mirror", type.getFullName());
+            return new MirrorXmlSchemaGenerator(classifier).generate(type);
+        }
+        return toSchema(generate(context(javaType)));
+    }
+
+    private Class<?> javaType(Type type) {
+        try {
+            return Class.forName(type.getFullName());
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private JAXBContext context(Class<?>... javaTypes) {
+        try {
+            return JAXBContext.newInstance(javaTypes);
+        } catch (JAXBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String generate(JAXBContext context) {
+        final StringWriter string = new StringWriter();
+        try {
+            context.generateSchema(new SchemaOutputResolver() {
+                @Override
+                public javax.xml.transform.Result createOutput(String namespaceUri, String suggestedFileName) {
+                    StreamResult result = new StreamResult(string);
+                    result.setSystemId("dummy");
+                    return result;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return string.toString();
+    }
+
+    private String toSchema(String string) {
+        return (string.isEmpty()) ? null : (string.trim() + "\n");
+    }
+
+    /** Generate the schemas of all these types (that are not known, yet) with one {@link JAXBContext}. */
+    public void prepare(Collection<Type> types) {
+        if (mirrors)
+            return;
+        Map<String, Class<?>> javaTypes = new LinkedHashMap<>();
+        for (Type type : types)
+            if (!schemas.containsKey(type.getFullName()))
+                try {
+                    javaTypes.put(type.getFullName(), javaType(type));
+                } catch (RuntimeException e) {
+                    log.debug("skip {} in batch: {}", type.getFullName(), e.toString());
+                }
+        if (javaTypes.size() < 2)
+            return;
+        log.debug("generate xml schemas for {} types in one batch", javaTypes.size());
+
+        List<String> documents;
+        try {
+            documents = generateAll(context(javaTypes.values().toArray(new Class<?>[javaTypes.size()])));
+        } catch (RuntimeException e) {
+            log.debug("failed to generate xml schema batch: {}", e.toString());
+            return;
+        }
+        if (documents.size() != 1) {
+            log.debug("can't split {} xml schema documents", documents.size());
+            return;
+        }
+        SchemaComponents components = SchemaComponents.parse(documents.get(0));
+        if (components == null)
+            return;
+        for (Map.Entry<String, Class<?>> entry : javaTypes.entrySet()) {
+            String schema = components.split(xmlTypeName(entry.getValue()));
+            if (schema != null)
+                schemas.put(entry.getKey(), schema);
+        }
+    }
+
+    private List<String> generateAll(JAXBContext context) {
+        final List<StringWriter> documents = new ArrayList<>();
+        try {
+            context.generateSchema(new SchemaOutputResolver() {
+                @Override
+                public javax.xml.transform.Result createOutput(String namespaceUri, String suggestedFileName) {
+                    StringWriter document = new StringWriter();
+                    documents.add(document);
+                    StreamResult result = new StreamResult(document);
+                    result.setSystemId("dummy");
+                    return result;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        List<String> result = new ArrayList<>();
+        for (StringWriter document : documents)
+            result.add(document.toString());
+        return result;
+    }
+
+    private String xmlTypeName(Class<?> javaType) {
+        XmlType xmlType = javaType.getAnnotation(XmlType.class);
+        if (xmlType != null && !"##default".equals(xmlType.name()))
+            return xmlType.name().isEmpty() ? null : xmlType.name();
+        return Introspector.decapitalize(javaType.getSimpleName());
+    }
+
+    /**
+     * The top level components of a schema, as pretty printed by JAXB: the header, then blocks separated by empty
+     * lines, each an element, a complexType, or a simpleType, and the closing tag.
+     */
+    private static class SchemaComponents {
+        private static final Pattern START = Pattern.compile("  <xs:(element|complexType|simpleType) name=\"([^\"]*)\".*");
+        private static final Pattern REFERENCE = Pattern.compile("(type|base|ref)=\"([^\"]*)\"");
+
+        private static class Block {
+            final String kind;
+            final String name;
+            final List<String> lines = new ArrayList<>();
+            final Set<String> references = new LinkedHashSet<>();
+
+            Block(String kind, String name) {
+                this.kind = kind;
+                this.name = name;
+            }
+
+            boolean isElement() {
+                return "element".equals(kind);
+            }
+        }
+
+        public static SchemaComponents parse(String document) {
+            SchemaComponents components = new SchemaComponents();
+            Block block = null;
+            for (String line : document.trim().split("\n")) {
+                if (components.footer != null)
+                    return null; // anything after the closing tag
+                if (components.header.isEmpty() || !components.header.get(components.header.size() - 1)
+                        .startsWith("<xs:schema")) {
+                    components.header.add(line);
+                } else if (line.isEmpty()) {
+                    block = null;
+                } else if (line.equals("</xs:schema>")) {
+                    components.footer = line;
+                } else if (block == null) {
+                    Matcher matcher = START.matcher(line);
+                    if (!matcher.matches())
+                        return null; // e.g. imports
+                    block = new Block(matcher.group(1), matcher.group(2));
+                    components.blocks.add(block);
+                    components.addLine(block, line);
+                } else {
+                    components.addLine(block, line);
+                }
+            }
+            return (components.footer == null) ? null : components;
+        }
+
+        private final List<String> header = new ArrayList<>();
+        private final List<Block> blocks = new ArrayList<>();
+        private String footer;
+
+        private void addLine(Block block, String line) {
+            block.lines.add(line);
+            Matcher matcher = REFERENCE.matcher(line);
+            while (matcher.find())
+                if (!matcher.group(2).startsWith("xs:"))
+                    block.references.add(matcher.group(2));
+        }
+
+        /** The schema with only the components reachable from that type; <code>null</code> if that's not possible */
+        public String split(String typeName) {
+            if (typeName == null)
+                return null;
+            Set<String> types = new LinkedHashSet<>();
+            if (!collect(typeName, types))
+                return null;
+            StringBuilder out = new StringBuilder();
+            for (String line : header)
+                out.append(line).append('\n');
+            for (Block block : blocks)
+                if (block.isElement() ? types.containsAll(block.references) && !block.references.isEmpty()
+                        : types.contains(block.name)) {
+                    out.append('\n');
+                    for (String line : block.lines)
+                        out.append(line).append('\n');
+                }
+            out.append(footer).append('\n');
+            return out.toString();
+        }
+
+        private boolean collect(String typeName, Set<String> types) {
+            if (!types.add(typeName))
+                return true;
+            Block block = type(typeName);
+            if (block == null)
+                return false;
+            for (String reference : block.references)
+                if (reference.contains(":") || !collect(reference, types))
+                    return false;
+            return true;
+        }
+
+        private Block type(String name) {
+            for (Block block : blocks)
+                if (!block.isElement() && block.name.equals(name))
+                    return block;
+            return null;
+        }
+    }
+}
@@ -11,13 +11,19 @@ import org.slf4j.*;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.*;
 import javax.ws.rs.core.Response.*;
+import javax.xml.bind.*;
 import javax.xml.bind.annotation.*;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.lang.invoke.*;
+import java.lang.ref.*;
+import java.lang.reflect.Modifier;
 import java.net.URI;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import static com.github.t1.ramlap.tools.StringTools.*;
+import static java.lang.invoke.MethodType.*;
 import static javax.ws.rs.core.Response.Status.*;
 import static javax.ws.rs.core.Response.Status.Family.*;
 import static javax.xml.bind.annotation.XmlAccessType.*;
@@ -46,6 +52,9 @@ import static javax.xml.bind.annotation.XmlAccessType.*;
  * </code>
  * </pre>
  *
+ * Every fluent setter returns a copy, so if you set several fields on a hot path, use a {@link Builder} instead; it
+ * creates only one instance, e.g. <code>ProblemDetail.builder(FooNotFound.class).detail("...").toWebException()</code>.
+ * <p>
  * Some common convenience types are provided together with factory methods that return a {@link WebException}, e.g.
  * {@link #badRequest(String)}, as well a generic factory method {@link #webException(Status, String)}.
  * <p>
@@ -53,7 +62,16 @@ import static javax.xml.bind.annotation.XmlAccessType.*;
  * The {@link #toWebException()} is for nested validation code.<br>
  * These methods log the problem detail, so you can quickly find the {@link #instance()}. You may want to set the
  * {@link #LOGGER} factory, so your application log file is used. The log level is ERROR for 5xx status codes (includes
- * the stack trace), and INFO for all other codes.
+ * the stack trace), and INFO for all other codes. If there are too many problems to log them all, set the
+ * {@link #LOG_POLICY}, e.g. to a {@link RateLimitedLogPolicy}. To count the responses, set the {@link #METRICS}.
+ * <p>
+ * For client errors marked as {@link ApiResponse#stackless() stackless}, the {@link #toWebException()} has no stack
+ * trace and builds and logs the response only when it's needed.
+ * <p>
+ * The {@link #instance()} URI is created by the {@link #INSTANCE_URI_FACTORY} only when it's first needed, e.g. when
+ * the problem detail is logged or serialized, so a copy made by one of the fluent setters before that gets its own
+ * instance URI. If you create many problem details, you may want to use the {@link SequentialInstanceUris} instead of
+ * the default random UUIDs.
  *
  * @see <a href="https://tools.ietf.org/html/draft-ietf-appsawg-http-problem-01">IETF: Problem Details for HTTP APIs</a>
  */
@@ -65,14 +83,14 @@ public class ProblemDetail implements Cloneable {
     public static class BadRequest extends ProblemDetail {}
 
     public static WebApplicationException badRequest(String detail) {
-        return new BadRequest().detail(detail).toWebException();
+        return builder(BadRequest.class).detail(detail).toWebException();
     }
 
 
     public static class ValidationFailed extends BadRequest {}
 
     public static WebApplicationException validationFailed(String detail) {
-        return new ValidationFailed().detail(detail).toWebException();
+        return builder(ValidationFailed.class).detail(detail).toWebException();
     }
 
 
@@ -80,7 +98,7 @@ public class ProblemDetail implements Cloneable {
     public static class NotFound extends ProblemDetail {}
 
     public static WebApplicationException notFound(String detail) {
-        return new NotFound().detail(detail).toWebException();
+        return builder(NotFound.class).detail(detail).toWebException();
     }
 
 
@@ -88,7 +106,7 @@ public class ProblemDetail implements Cloneable {
     public static class Unauthorized extends ProblemDetail {}
 
     public static WebApplicationException unauthorized(String detail) {
-        return new Unauthorized().detail(detail).toWebException();
+        return builder(Unauthorized.class).detail(detail).toWebException();
     }
 
 
@@ -96,12 +114,12 @@ public class ProblemDetail implements Cloneable {
     public static class InternalServerError extends ProblemDetail {}
 
     public static WebApplicationException internalServerError(String detail) {
-        return new InternalServerError().detail(detail).toWebException();
+        return builder(InternalServerError.class).detail(detail).toWebException();
     }
 
 
     public static WebApplicationException webException(Status status, String detail) {
-        return new ProblemDetail().status(status).detail(detail).toWebException();
+        return builder().status(status).detail(detail).toWebException();
     }
 
     /** The prefix for problem media types to be completed by <code>+json</code>, etc. */
@@ -125,25 +143,193 @@ public class ProblemDetail implements Cloneable {
     public static final String URN_PROBLEM_INSTANCE_PREFIX = "urn:problem-instance:";
 
     public static ProblemDetail of(URI uri) {
+        return builder(uri).build();
+    }
+
+    /**
+     * A {@link Builder} for the java type of this type URI, if it's a {@link #URN_PROBLEM_JAVA_PREFIX java type URN} of
+     * a compatible subclass, or for a plain {@link ProblemDetail} with this type URI.
+     */
+    public static Builder builder(URI uri) {
         if (uri == null)
-            return new ProblemDetail();
-        ProblemDetail problem = null;
+            return new Builder(null, new ProblemDetail(), true);
+        Metadata javaType = null;
         if (uri.toString().startsWith(URN_PROBLEM_JAVA_PREFIX))
-            problem = newInstance(uri.toString().substring(URN_PROBLEM_JAVA_PREFIX.length()));
-        return (problem == null) ? new ProblemDetail().type(uri) : problem;
+            javaType = javaType(uri.toString().substring(URN_PROBLEM_JAVA_PREFIX.length()));
+        return (javaType == null)
+                ? new Builder(null, new ProblemDetail(), true).type(uri)
+                : new Builder(null, javaType.newInstance(), true);
+    }
+
+    /** The type names come from the outside, so there may be any number of them */
+    static final int MAX_JAVA_TYPES = 1024;
+
+    /** The cached reference for type names that are unknown, incompatible, or can't be instantiated */
+    private static final Reference<Class<?>> NO_JAVA_TYPE = new WeakReference<>(null);
+
+    /**
+     * The resolved type names, so we ask the class loader only once for every name. The classes are only weakly
+     * referenced, so they can still be unloaded. When there are {@link #MAX_JAVA_TYPES}, the cache is cleared, which
+     * is cheaper than keeping track of the least recently used, and only costs resolving the names in use once more.
+     */
+    private static final Map<String, Reference<Class<?>>> JAVA_TYPES = new ConcurrentHashMap<>();
+
+    private static Metadata javaType(String typeName) {
+        Reference<Class<?>> reference = JAVA_TYPES.get(typeName);
+        if (reference == NO_JAVA_TYPE)
+            return null;
+        Class<?> type = (reference == null) ? null : reference.get();
+        if (type == null) {
+            type = resolveJavaType(typeName);
+            if (JAVA_TYPES.size() >= MAX_JAVA_TYPES)
+                JAVA_TYPES.clear();
+            JAVA_TYPES.put(typeName, (type == null) ? NO_JAVA_TYPE : new WeakReference<>(type));
+            if (type == null)
+                return null;
+        }
+        return METADATA.get(type);
     }
 
-    private static ProblemDetail newInstance(String typeName) {
+    private static Class<?> resolveJavaType(String typeName) {
         try {
-            @SuppressWarnings("unchecked")
-            Class<ProblemDetail> typeClass = (Class<ProblemDetail>) Class.forName(typeName);
-            return typeClass.newInstance();
-        } catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
+            // don't initialize classes that are not problem details
+            Class<?> type = Class.forName(typeName, false, ProblemDetail.class.getClassLoader());
+            if (!ProblemDetail.class.isAssignableFrom(type))
+                return null;
+            return (METADATA.get(type).constructor == null) ? null : type; // fall back to ProblemDetail
+        } catch (ClassNotFoundException | LinkageError e) {
             return null; // no compatible subclass available -> fall back to ProblemDetail
         }
     }
 
+    static int javaTypes() {
+        return JAVA_TYPES.size();
+    }
+
+    /** The cached class of that type name; <code>null</code> if it's not cached or unknown */
+    static Class<?> cachedJavaType(String typeName) {
+        Reference<Class<?>> reference = JAVA_TYPES.get(typeName);
+        return (reference == null) ? null : reference.get();
+    }
+
+    /**
+     * A fresh instance with the defaults of that type; <code>null</code> if there is no accessible no-arg constructor,
+     * e.g. for local classes
+     */
+    static ProblemDetail newDefaultInstance(Class<? extends ProblemDetail> type) {
+        Metadata metadata = METADATA.get(type);
+        return (metadata.constructor == null) ? null : metadata.newInstance();
+    }
+
+    /** A {@link Builder} for a plain {@link ProblemDetail} */
+    public static Builder builder() {
+        return builder(ProblemDetail.class);
+    }
+
+    /** A {@link Builder} for this type, which must have an accessible no-arg constructor */
+    public static Builder builder(Class<? extends ProblemDetail> type) {
+        return new Builder(type, null, false);
+    }
+
+    /**
+     * Collects the fields to change and then creates only one problem detail, instead of a copy for every fluent
+     * setter. Fields that are not set get the defaults of the type, or the values of the problem detail the builder
+     * was created {@link ProblemDetail#toBuilder() from}.
+     */
+    public static class Builder {
+        private final Class<? extends ProblemDetail> type;
+        private final ProblemDetail prototype;
+        /** the prototype was created only for this builder, so the first build doesn't need a copy */
+        private boolean ownsPrototype;
+
+        private URI typeUri;
+        private boolean typeUriSet;
+        private String title;
+        private boolean titleSet;
+        private StatusType status;
+        private boolean statusSet;
+        private String detail;
+        private boolean detailSet;
+        private URI instance;
+        private boolean instanceSet;
+
+        private Builder(Class<? extends ProblemDetail> type, ProblemDetail prototype, boolean ownsPrototype) {
+            this.type = type;
+            this.prototype = prototype;
+            this.ownsPrototype = ownsPrototype;
+        }
+
+        public Builder type(URI type) {
+            this.typeUri = type;
+            this.typeUriSet = true;
+            return this;
+        }
+
+        public Builder title(String title) {
+            this.title = title;
+            this.titleSet = true;
+            return this;
+        }
+
+        public Builder status(StatusType status) {
+            this.status = status;
+            this.statusSet = true;
+            return this;
+        }
+
+        public Builder detail(String detail) {
+            this.detail = detail;
+            this.detailSet = true;
+            return this;
+        }
+
+        public Builder instance(URI instance) {
+            this.instance = instance;
+            this.instanceSet = true;
+            return this;
+        }
+
+        public ProblemDetail build() {
+            ProblemDetail problem;
+            if (prototype == null) {
+                problem = METADATA.get(type).newInstance();
+            } else if (ownsPrototype) {
+                problem = prototype;
+                ownsPrototype = false;
+            } else {
+                problem = prototype.clone();
+            }
+            if (typeUriSet)
+                problem.type = typeUri;
+            if (titleSet)
+                problem.title = title;
+            if (statusSet)
+                problem.status = status;
+            if (detailSet)
+                problem.detail = detail;
+            if (instanceSet) {
+                problem.instance = instance;
+                problem.instanceCreated = true;
+            }
+            return problem;
+        }
+
+        public Response toResponse() {
+            return build().toResponse();
+        }
+
+        public ResponseBuilder toResponseBuilder() {
+            return build().toResponseBuilder();
+        }
+
+        public WebException toWebException() {
+            return build().toWebException();
+        }
+    }
+
     public static ProblemDetail of(WebApplicationException webException) {
+        if (webException instanceof StacklessWebException)
+            return ((StacklessWebException) webException).getProblemDetail();
         return (ProblemDetail) webException.getResponse().getEntity();
     }
 
@@ -153,8 +339,15 @@ public class ProblemDetail implements Cloneable {
     public static Function<Class<? extends ProblemDetail>, URI> INSTANCE_URI_FACTORY =
             (t -> URI.create(URN_PROBLEM_INSTANCE_PREFIX + UUID.randomUUID()));
 
+    /** Resolved only once per class (as long as it's not replaced), so it should not depend on the instance */
     public static Function<ProblemDetail, Logger> LOGGER = (t -> LoggerFactory.getLogger("problemdetail"));
 
+    /** Decides which problem details are actually {@link #log() logged}; by default all of them */
+    public static ProblemLogPolicy LOG_POLICY = ProblemLogPolicy.ALL;
+
+    /** Counts the problem details turned into responses; by default nothing */
+    public static ProblemMetrics METRICS = ProblemMetrics.DISABLED;
+
     @JavaDoc("A URI reference [RFC3986] that identifies the problem type. When dereferenced, it is encouraged to provide "
             + "human-readable documentation for the problem type (e.g., using HTML [W3C.REC-html401-19991224])."
             + "<p>"
@@ -189,37 +382,130 @@ public class ProblemDetail implements Cloneable {
             + "It may or may not yield further information if dereferenced.")
     @ApiModelProperty(example = URN_PROBLEM_INSTANCE_PREFIX + "233e7b05-0500-4b0d-a7d8-f4b90dbfa40e")
     @XmlElement
-    @JsonProperty
     private URI instance;
 
-    public ProblemDetail() {
-        Class<? extends ProblemDetail> type = getClass();
-        this.type = TYPE_URI_FACTORY.apply(type);
-        this.title = title(type);
-        this.status = status(type);
-        this.detail = null;
-        this.instance = INSTANCE_URI_FACTORY.apply(type);
+    private transient volatile boolean instanceCreated;
+
+    /**
+     * The defaults of a class, resolved only once. The type URI and the logger are cached only as long as the
+     * {@link #TYPE_URI_FACTORY} resp. the {@link #LOGGER} factory is not replaced.
+     */
+    private static class Metadata {
+        private final Class<? extends ProblemDetail> type;
+        private final String title;
+        private final StatusType status;
+        private final boolean stackless;
+        /** <code>null</code> if there is no accessible no-arg constructor, e.g. for local classes */
+        private final MethodHandle constructor;
+        private volatile Resolved<URI> typeUri;
+        private volatile Resolved<Logger> logger;
+
+        private Metadata(Class<? extends ProblemDetail> type) {
+            this.type = type;
+            this.title = title(type);
+            this.status = status(type);
+            this.stackless = stackless(type);
+            this.constructor = constructor(type);
+        }
+
+        private static MethodHandle constructor(Class<? extends ProblemDetail> type) {
+            if (Modifier.isAbstract(type.getModifiers()))
+                return null;
+            try {
+                return MethodHandles.lookup().findConstructor(type, methodType(void.class))
+                        .asType(methodType(ProblemDetail.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return null;
+            }
+        }
+
+        private ProblemDetail newInstance() {
+            if (constructor == null)
+                throw new RuntimeException("can't instantiate " + type + ": no accessible no-arg constructor");
+            try {
+                return (ProblemDetail) constructor.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private static String title(Class<? extends ProblemDetail> type) {
+            ApiResponse apiResponse = type.getAnnotation(ApiResponse.class);
+            if (apiResponse != null && !apiResponse.title().isEmpty())
+                return apiResponse.title();
+            if (ProblemDetail.class == type)
+                return null; // nothing of interest
+            return camelCaseToWords(type.getSimpleName());
+        }
+
+        private static StatusType status(Class<? extends ProblemDetail> type) {
+            ApiResponse apiResponse = type.getAnnotation(ApiResponse.class);
+            return (apiResponse != null) ? apiResponse.status() : ApiResponse.DEFAULT_STATUS;
+        }
+
+        private static boolean stackless(Class<? extends ProblemDetail> type) {
+            ApiResponse apiResponse = type.getAnnotation(ApiResponse.class);
+            return apiResponse != null && apiResponse.stackless();
+        }
+
+        private URI typeUri() {
+            Function<Class<? extends ProblemDetail>, URI> factory = TYPE_URI_FACTORY;
+            Resolved<URI> current = this.typeUri;
+            if (current == null || current.factory != factory)
+                this.typeUri = current = new Resolved<>(factory, factory.apply(type));
+            return current.value;
+        }
+
+        private Logger logger(ProblemDetail problem) {
+            Function<ProblemDetail, Logger> factory = LOGGER;
+            Resolved<Logger> current = this.logger;
+            if (current == null || current.factory != factory)
+                this.logger = current = new Resolved<>(factory, factory.apply(problem));
+            return current.value;
+        }
     }
 
-    private String title(Class<? extends ProblemDetail> type) {
-        if (type.isAnnotationPresent(ApiResponse.class)
-                && !type.getAnnotation(ApiResponse.class).title().isEmpty())
-            return type.getAnnotation(ApiResponse.class).title();
-        if (ProblemDetail.class == type)
-            return null; // nothing of interest
-        return camelCaseToWords(type.getSimpleName());
+    /** A value and the factory it was created with */
+    private static class Resolved<T> {
+        private final Object factory;
+        private final T value;
+
+        private Resolved(Object factory, T value) {
+            this.factory = factory;
+            this.value = value;
+        }
     }
 
-    private StatusType status(Class<? extends ProblemDetail> type) {
-        return (type.isAnnotationPresent(ApiResponse.class))
-                ? type.getAnnotation(ApiResponse.class).status()
-                : ApiResponse.DEFAULT_STATUS;
+    private static final ClassValue<Metadata> METADATA = new ClassValue<Metadata>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Metadata computeValue(Class<?> type) {
+            return new Metadata((Class<? extends ProblemDetail>) type);
+        }
+    };
+
+    public ProblemDetail() {
+        Metadata metadata = METADATA.get(getClass());
+        this.type = metadata.typeUri();
+        this.title = metadata.title;
+        this.status = metadata.status;
+        this.detail = null;
     }
 
     public URI type() {
         return type;
     }
 
+    /**
+     * The key that log policies and metrics use to tell the kinds of problem details apart: the type URI, or the class,
+     * if there is no type URI.
+     */
+    public Object kind() {
+        return (type == null) ? getClass() : type;
+    }
+
     public String title() {
         return title;
     }
@@ -232,10 +518,30 @@ public class ProblemDetail implements Cloneable {
         return detail;
     }
 
+    @JsonProperty
     public URI instance() {
+        if (!instanceCreated)
+            createInstance();
         return instance;
     }
 
+    private synchronized void createInstance() {
+        if (!instanceCreated) {
+            this.instance = INSTANCE_URI_FACTORY.apply(getClass());
+            this.instanceCreated = true;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private void beforeMarshal(Marshaller marshaller) {
+        instance();
+    }
+
+    @SuppressWarnings("unused")
+    private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        this.instanceCreated = (instance != null);
+    }
+
     @JsonIgnore
     public boolean isServerError() {
         return status.getFamily() == SERVER_ERROR;
@@ -251,6 +557,11 @@ public class ProblemDetail implements Cloneable {
         }
     }
 
+    /** A {@link Builder} that starts with the values of this problem detail */
+    public Builder toBuilder() {
+        return new Builder(getClass(), this, false);
+    }
+
     public ProblemDetail type(URI type) {
         ProblemDetail clone = clone();
         clone.type = type;
@@ -278,6 +589,7 @@ public class ProblemDetail implements Cloneable {
     public ProblemDetail instance(URI instance) {
         ProblemDetail clone = clone();
         clone.instance = instance;
+        clone.instanceCreated = true;
         return clone;
     }
 
@@ -287,6 +599,7 @@ public class ProblemDetail implements Cloneable {
 
     public ResponseBuilder toResponseBuilder() {
         log();
+        METRICS.count(this);
         return Response.status(status)
                 .entity(this)
                 .type(APPLICATION_PROBLEM_JSON_TYPE) // TODO support xml/yaml/etc.
@@ -294,18 +607,39 @@ public class ProblemDetail implements Cloneable {
     }
 
     public WebException toWebException() {
-        Response response = toResponse();
         if (isServerError())
-            return new WebException(response);
-        return new WebApplicationApplicationException(response);
+            return new WebException(toResponse());
+        if (METADATA.get(getClass()).stackless)
+            return new StacklessWebException(this);
+        return new WebApplicationApplicationException(toResponse());
     }
 
     public void log() {
-        Logger logger = LOGGER.apply(this);
-        if (isServerError())
-            logger.error("{}", this);
-        else
-            logger.info("{}", this);
+        ProblemLogPolicy policy = LOG_POLICY;
+        long suppressed = policy.admit(this);
+        if (suppressed != ProblemLogPolicy.SUPPRESS)
+            log(suppressed);
+        Map<Object, Long> drained = policy.drainSuppressed();
+        if (!drained.isEmpty()) {
+            Logger logger = METADATA.get(getClass()).logger(this);
+            for (Map.Entry<Object, Long> entry : drained.entrySet())
+                logger.warn("{} problem details of {} suppressed", entry.getValue(), entry.getKey());
+        }
+    }
+
+    private void log(long suppressed) {
+        Logger logger = METADATA.get(getClass()).logger(this);
+        if (suppressed == 0) {
+            if (isServerError())
+                logger.error("{}", this);
+            else
+                logger.info("{}", this);
+        } else {
+            if (isServerError())
+                logger.error("{} (and {} suppressed before)", this, suppressed);
+            else
+                logger.info("{} (and {} suppressed before)", this, suppressed);
+        }
     }
 
 
@@ -314,7 +648,7 @@ public class ProblemDetail implements Cloneable {
         final int prime = 31;
         int result = 1;
         result = prime * result + ((detail == null) ? 0 : detail.hashCode());
-        result = prime * result + ((instance == null) ? 0 : instance.hashCode());
+        result = prime * result + ((instance() == null) ? 0 : instance().hashCode());
         result = prime * result + ((status == null) ? 0 : status.getStatusCode());
         result = prime * result + ((title == null) ? 0 : title.hashCode());
         result = prime * result + ((type == null) ? 0 : type.hashCode());
@@ -335,10 +669,10 @@ public class ProblemDetail implements Cloneable {
                 return false;
         } else if (!detail.equals(that.detail))
             return false;
-        if (instance == null) {
-            if (that.instance != null)
+        if (instance() == null) {
+            if (that.instance() != null)
                 return false;
-        } else if (!instance.equals(that.instance))
+        } else if (!instance().equals(that.instance()))
             return false;
         if (status == null) {
             if (that.status != null)
@@ -365,7 +699,7 @@ public class ProblemDetail implements Cloneable {
                 + ((title == null) ? "" : (" \"" + title + "\""))
                 + ((status == null) ? "" : (" " + status.getStatusCode() + " " + status.getReasonPhrase()))
                 + ((detail == null) ? "" : ": \"" + detail + "\"")
-                + ((instance == null) ? "" : (" [" + instance + "]"))
+                + ((instance() == null) ? "" : (" [" + instance() + "]"))
                 ;
     }
 }
@@ -2,57 +2,119 @@ package com.github.t1.ramlap.tools;
 
 import java.io.IOException;
 import java.net.URI;
-import java.util.function.Function;
 
 import javax.ws.rs.core.Response.*;
 
 import com.fasterxml.jackson.core.*;
-import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 
+import static com.fasterxml.jackson.core.JsonToken.*;
+
+/**
+ * Reads the fields of a {@link ProblemDetail} in one pass over the tokens, skipping unknown fields, and then builds
+ * only one instance, as the <code>type</code> that decides about the class may come after the other fields.
+ */
 public class ProblemDetailJsonDeserializer extends StdDeserializer<ProblemDetail> {
     private static final long serialVersionUID = 1L;
 
-    // TODO handle unknown Status
+    /**
+     * A {@link Status} by name or code, or a {@link NonStandardStatus} for other codes, as written by the
+     * {@link ProblemDetailMessageBodyWriter}.
+     */
     public static StatusType toStatus(String value) {
+        if (isCode(value)) {
+            int code = Integer.parseInt(value);
+            Status status = Status.fromStatusCode(code);
+            return (status == null) ? new NonStandardStatus(code) : status;
+        }
         return Status.valueOf(value);
     }
 
+    private static boolean isCode(String value) {
+        if (value.isEmpty() || value.length() > 3)
+            return false;
+        for (int i = 0; i < value.length(); i++)
+            if (!Character.isDigit(value.charAt(i)))
+                return false;
+        return true;
+    }
+
     protected ProblemDetailJsonDeserializer() {
         super(ProblemDetail.class);
     }
 
-    private static class ProblemDetailParser {
-        private final JsonNode tree;
-        private ProblemDetail problem;
+    private static class Fields {
+        private String type;
+        private String title;
+        private boolean titleSet;
+        private String status;
+        private boolean statusSet;
+        private String detail;
+        private boolean detailSet;
+        private String instance;
+        private boolean instanceSet;
 
-        public ProblemDetailParser(JsonNode tree) {
-            this.tree = tree;
-        }
-
-        public ProblemDetail parse() {
-            this.problem = ProblemDetail.of(asUri(tree.get("type")));
-            set("title", t -> problem.title(t));
-            set("status", t -> problem.status(toStatus(t)));
-            set("detail", t -> problem.detail(t));
-            set("instance", t -> problem.instance(URI.create(t)));
-            return problem;
-        }
-
-        private URI asUri(JsonNode typeNode) {
-            return (typeNode == null) ? null : URI.create(typeNode.asText());
-        }
-
-        private void set(String fieldName, Function<String, ProblemDetail> consumer) {
-            if (tree.has(fieldName))
-                problem = consumer.apply(tree.get(fieldName).asText());
+        private ProblemDetail build() {
+            ProblemDetail.Builder builder = ProblemDetail.builder((type == null) ? null : URI.create(type));
+            if (titleSet)
+                builder.title(title);
+            if (statusSet)
+                builder.status((status == null) ? null : toStatus(status));
+            if (detailSet)
+                builder.detail(detail);
+            if (instanceSet)
+                builder.instance((instance == null) ? null : URI.create(instance));
+            return builder.build();
         }
     }
 
     @Override
     public ProblemDetail deserialize(JsonParser parser, DeserializationContext context)
             throws IOException, JsonProcessingException {
-        JsonNode tree = parser.getCodec().readTree(parser);
-        return new ProblemDetailParser(tree).parse();
+        JsonToken token = parser.getCurrentToken();
+        if (token == START_OBJECT)
+            token = parser.nextToken();
+        if (token != FIELD_NAME && token != END_OBJECT)
+            throw context.mappingException(ProblemDetail.class, token);
+        Fields fields = new Fields();
+        for (; token == FIELD_NAME; token = parser.nextToken()) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+            case "type":
+                fields.type = text(parser, context);
+                break;
+            case "title":
+                fields.title = text(parser, context);
+                fields.titleSet = true;
+                break;
+            case "status":
+                fields.status = text(parser, context);
+                fields.statusSet = true;
+                break;
+            case "detail":
+                fields.detail = text(parser, context);
+                fields.detailSet = true;
+                break;
+            case "instance":
+                fields.instance = text(parser, context);
+                fields.instanceSet = true;
+                break;
+            default:
+                parser.skipChildren(); // e.g. extension members
+            }
+        }
+        return fields.build();
+    }
+
+    private String text(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == VALUE_NULL)
+            return null;
+        if (!token.isScalarValue())
+            throw context.mappingException("expected a scalar value for " + parser.getCurrentName()
+                    + " of a problem detail but found " + token);
+        return parser.getText();
     }
 }
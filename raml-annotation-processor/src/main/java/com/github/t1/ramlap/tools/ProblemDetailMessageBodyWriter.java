@@ -0,0 +1,257 @@
+package com.github.t1.ramlap.tools;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.*;
+import javax.ws.rs.core.Response.StatusType;
+import javax.ws.rs.ext.*;
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.*;
+
+import static com.github.t1.ramlap.tools.ProblemDetail.*;
+
+/**
+ * Writes {@link ProblemDetail}s as {@link ProblemDetail#APPLICATION_PROBLEM_JSON} without reflection: the
+ * <code>type</code>, <code>title</code>, and <code>status</code> are the same for all instances of a class (unless
+ * they have been explicitly changed), so they are encoded only once per class, and only the <code>detail</code> and the
+ * <code>instance</code> are encoded for every response, into a per-thread buffer.
+ * <p>
+ * The output is the same as that of Jackson with {@link com.fasterxml.jackson.annotation.JsonInclude.Include#NON_EMPTY
+ * NON_EMPTY}, i.e. empty fields are skipped, and a {@link javax.ws.rs.core.Response.Status status} is written by name.
+ * Other {@link StatusType}s, e.g. a {@link NonStandardStatus}, are written by code, while Jackson would write them as
+ * an object. The {@link ProblemDetailJsonDeserializer} reads both names and codes.
+ */
+@Provider
+@Produces(APPLICATION_PROBLEM_JSON)
+public class ProblemDetailMessageBodyWriter implements MessageBodyWriter<ProblemDetail> {
+    /**
+     * The default values of a class and the JSON prefix they result in; <code>null</code> values and no prefix, if the
+     * class can't be instantiated, e.g. local classes, so the fields are always written.
+     */
+    private static class Defaults {
+        private final URI type;
+        private final String title;
+        private final StatusType status;
+        private final byte[] prefix;
+
+        private Defaults(ProblemDetail problem) {
+            this.type = (problem == null) ? null : problem.type();
+            this.title = (problem == null) ? null : problem.title();
+            this.status = (problem == null) ? null : problem.status();
+            if (problem == null) {
+                this.prefix = null;
+            } else {
+                JsonBuffer buffer = new JsonBuffer();
+                buffer.writeFields(type, title, status);
+                this.prefix = buffer.toByteArray();
+            }
+        }
+
+        private boolean matches(ProblemDetail problem) {
+            return prefix != null
+                    && Objects.equals(type, problem.type())
+                    && Objects.equals(title, problem.title())
+                    && status == problem.status();
+        }
+    }
+
+    /** Appends JSON to a growing byte array, encoding UTF-8 and escaping strings on the fly */
+    private static class JsonBuffer {
+        private static final String HEX = "0123456789abcdef";
+        private static final int MAX_RETAINED = 64 * 1024;
+
+        private byte[] bytes = new byte[512];
+        private int length;
+        private boolean first = true;
+
+        private void writeFields(URI type, String title, StatusType status) {
+            if (type != null)
+                writeField("type", type.toString());
+            if (title != null && !title.isEmpty())
+                writeField("title", title);
+            if (status instanceof Enum)
+                writeField("status", ((Enum<?>) status).name());
+            else if (status != null)
+                writeField("status", status.getStatusCode());
+        }
+
+        private void writeField(String name, String value) {
+            writeName(name);
+            writeString(value);
+        }
+
+        private void writeField(String name, int value) {
+            writeName(name);
+            writeAscii(Integer.toString(value));
+        }
+
+        private void writeName(String name) {
+            write(first ? '{' : ',');
+            first = false;
+            writeString(name);
+            write(':');
+        }
+
+        private void writeRaw(byte[] raw) {
+            ensure(raw.length);
+            System.arraycopy(raw, 0, bytes, length, raw.length);
+            length += raw.length;
+            first = (raw.length == 0);
+        }
+
+        private void writeAscii(String value) {
+            for (int i = 0; i < value.length(); i++)
+                write(value.charAt(i));
+        }
+
+        private void writeString(String value) {
+            write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    writeEscape(c);
+                } else if (c < 0x20) {
+                    writeControl(c);
+                } else if (c < 0x80) {
+                    write(c);
+                } else if (c < 0x800) {
+                    write(0xc0 | (c >> 6));
+                    write(0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    write(0xf0 | (codePoint >> 18));
+                    write(0x80 | ((codePoint >> 12) & 0x3f));
+                    write(0x80 | ((codePoint >> 6) & 0x3f));
+                    write(0x80 | (codePoint & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    writeUnicodeEscape(c); // unpaired, so it can't be encoded as UTF-8
+                } else {
+                    write(0xe0 | (c >> 12));
+                    write(0x80 | ((c >> 6) & 0x3f));
+                    write(0x80 | (c & 0x3f));
+                }
+            }
+            write('"');
+        }
+
+        private void writeControl(char c) {
+            switch (c) {
+            case '\n':
+                writeEscape('n');
+                break;
+            case '\r':
+                writeEscape('r');
+                break;
+            case '\t':
+                writeEscape('t');
+                break;
+            case '\b':
+                writeEscape('b');
+                break;
+            case '\f':
+                writeEscape('f');
+                break;
+            default:
+                writeUnicodeEscape(c);
+            }
+        }
+
+        private void writeEscape(char c) {
+            write('\\');
+            write(c);
+        }
+
+        private void writeUnicodeEscape(char c) {
+            writeEscape('u');
+            write(HEX.charAt(c >> 12));
+            write(HEX.charAt((c >> 8) & 0xf));
+            write(HEX.charAt((c >> 4) & 0xf));
+            write(HEX.charAt(c & 0xf));
+        }
+
+        private void write(int b) {
+            ensure(1);
+            bytes[length++] = (byte) b;
+        }
+
+        private void ensure(int n) {
+            if (length + n > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + n));
+        }
+
+        private void end() {
+            if (first)
+                write('{');
+            write('}');
+        }
+
+        private void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, length);
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+
+        /** Don't keep huge buffers for every thread */
+        private void reset() {
+            if (bytes.length > MAX_RETAINED)
+                bytes = new byte[512];
+            length = 0;
+            first = true;
+        }
+    }
+
+    private static final ThreadLocal<JsonBuffer> BUFFER = ThreadLocal.withInitial(JsonBuffer::new);
+
+    private static final ClassValue<Defaults> DEFAULTS = new ClassValue<Defaults>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Defaults computeValue(Class<?> type) {
+            return new Defaults(ProblemDetail.newDefaultInstance((Class<? extends ProblemDetail>) type));
+        }
+    };
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return ProblemDetail.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(ProblemDetail problem, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(ProblemDetail problem, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream out) throws IOException {
+        JsonBuffer buffer = BUFFER.get();
+        buffer.reset();
+        write(problem, buffer);
+        buffer.writeTo(out);
+    }
+
+    /** The JSON bytes of this problem detail */
+    public byte[] toBytes(ProblemDetail problem) {
+        JsonBuffer buffer = new JsonBuffer();
+        write(problem, buffer);
+        return buffer.toByteArray();
+    }
+
+    private void write(ProblemDetail problem, JsonBuffer buffer) {
+        Defaults classDefaults = DEFAULTS.get(problem.getClass());
+        if (classDefaults.matches(problem))
+            buffer.writeRaw(classDefaults.prefix);
+        else
+            buffer.writeFields(problem.type(), problem.title(), problem.status());
+        if (problem.detail() != null && !problem.detail().isEmpty())
+            buffer.writeField("detail", problem.detail());
+        if (problem.instance() != null)
+            buffer.writeField("instance", problem.instance().toString());
+        buffer.end();
+    }
+}
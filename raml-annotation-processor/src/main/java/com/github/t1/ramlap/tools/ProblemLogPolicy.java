@@ -0,0 +1,34 @@
+package com.github.t1.ramlap.tools;
+
+import java.util.Map;
+
+import static java.util.Collections.*;
+
+/**
+ * Decides if a {@link ProblemDetail} is {@link ProblemDetail#log() logged}, so a flood of problems doesn't flood the
+ * logs, too. Set it as the {@link ProblemDetail#LOG_POLICY}.
+ */
+@FunctionalInterface
+public interface ProblemLogPolicy {
+    /** The result of {@link #admit(ProblemDetail)} for a problem detail that should not be logged */
+    long SUPPRESS = -1;
+
+    /** Log every problem detail */
+    ProblemLogPolicy ALL = problem -> 0;
+
+    /**
+     * @return the number of problem details of the same kind that have been suppressed since the last one that was
+     *         logged, so the log line can mention them, or {@link #SUPPRESS}, if this one should not be logged.
+     */
+    long admit(ProblemDetail problem);
+
+    /**
+     * The numbers of suppressed problem details by kind, for the kinds that have not come up for a while, so the
+     * numbers would otherwise only be logged with the next problem detail of that kind, if ever. Every number is
+     * returned only once. Called after every {@link #admit(ProblemDetail) admit}, so it should be cheap most of the
+     * time.
+     */
+    default Map<Object, Long> drainSuppressed() {
+        return emptyMap();
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.t1.ramlap.tools;
+
+import javax.management.*;
+import javax.ws.rs.core.Response.StatusType;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Counts the {@link ProblemDetail}s that are turned into responses, by {@link ProblemDetail#kind() type} and status
+ * code, so you can alert on spikes. Set it as the {@link ProblemDetail#METRICS} and optionally {@link #register()
+ * register} it as an MBean. The {@link #DISABLED} metrics count nothing.
+ * <p>
+ * Counting is a map lookup and an increment of a {@link LongAdder}, so it doesn't allocate and threads don't contend,
+ * except when a type or status is counted for the first time. The type URIs may come from the outside, so only up to
+ * {@link #MAX_TYPES} types are counted separately; all further types are counted as {@link #OTHER_TYPES}.
+ */
+public class ProblemMetrics implements ProblemMetricsMXBean {
+    public static final ProblemMetrics DISABLED = new ProblemMetrics(false);
+
+    public static final String OBJECT_NAME = "com.github.t1.ramlap:type=ProblemMetrics";
+
+    /** status codes beyond are counted as 0 */
+    private static final int MAX_STATUS = 600;
+
+    /** The number of types counted separately, as every type takes an array of {@link #MAX_STATUS} counters */
+    static final int MAX_TYPES = 256;
+
+    /** The type of all problem details beyond the {@link #MAX_TYPES} */
+    public static final String OTHER_TYPES = "other";
+
+    private final boolean enabled;
+    private final Map<Object, AtomicReferenceArray<LongAdder>> counters = new ConcurrentHashMap<>();
+    private ObjectName registered;
+
+    public ProblemMetrics() {
+        this(true);
+    }
+
+    private ProblemMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void count(ProblemDetail problem) {
+        if (!enabled)
+            return;
+        Object kind = problem.kind();
+        if (!counters.containsKey(kind) && counters.size() >= MAX_TYPES)
+            kind = OTHER_TYPES;
+        AtomicReferenceArray<LongAdder> byStatus =
+                counters.computeIfAbsent(kind, k -> new AtomicReferenceArray<>(MAX_STATUS));
+        int index = index(problem.status());
+        LongAdder counter = byStatus.get(index);
+        if (counter == null) {
+            byStatus.compareAndSet(index, null, new LongAdder());
+            counter = byStatus.get(index);
+        }
+        counter.increment();
+    }
+
+    private static int index(StatusType status) {
+        int code = (status == null) ? 0 : status.getStatusCode();
+        return (code > 0 && code < MAX_STATUS) ? code : 0;
+    }
+
+    /** The count for the type and status of this problem detail; not for {@link #OTHER_TYPES} */
+    public long getCount(ProblemDetail problem) {
+        AtomicReferenceArray<LongAdder> byStatus = counters.get(problem.kind());
+        if (byStatus == null)
+            return 0;
+        LongAdder counter = byStatus.get(index(problem.status()));
+        return (counter == null) ? 0 : counter.sum();
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<Object, AtomicReferenceArray<LongAdder>> entry : counters.entrySet()) {
+            String type = (entry.getKey() instanceof Class)
+                    ? ((Class<?>) entry.getKey()).getName()
+                    : entry.getKey().toString();
+            for (int status = 0; status < MAX_STATUS; status++) {
+                LongAdder counter = entry.getValue().get(status);
+                if (counter != null)
+                    result.put(status + " " + type, counter.sum());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getTotal() {
+        long total = 0;
+        for (Long count : getCounts().values())
+            total += count;
+        return total;
+    }
+
+    @Override
+    public void reset() {
+        counters.clear();
+    }
+
+    /** Register as MBean under the {@link #OBJECT_NAME} in the platform MBean server; does nothing if it already is */
+    public synchronized void register() {
+        registerAs(OBJECT_NAME);
+    }
+
+    /**
+     * Register as MBean under the {@link #OBJECT_NAME} with a <code>name</code> property in the platform MBean server,
+     * e.g. to have separate metrics for several applications in one JVM; does nothing if it already is.
+     */
+    public synchronized void register(String name) {
+        registerAs(OBJECT_NAME + ",name=" + ObjectName.quote(name));
+    }
+
+    private void registerAs(String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            if (name.equals(registered))
+                return;
+            if (registered != null)
+                unregister();
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registered = name;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new RuntimeException("other metrics are already registered as " + objectName
+                    + "; register these with a different name", e);
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Unregister from the platform MBean server, if registered */
+    public synchronized void unregister() {
+        if (registered == null)
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+        } catch (InstanceNotFoundException e) {
+            // already unregistered by someone else
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        } finally {
+            registered = null;
+        }
+    }
+}
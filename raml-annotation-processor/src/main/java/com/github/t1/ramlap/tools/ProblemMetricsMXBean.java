@@ -0,0 +1,13 @@
+package com.github.t1.ramlap.tools;
+
+import java.util.Map;
+
+/** The JMX view of the {@link ProblemMetrics} */
+public interface ProblemMetricsMXBean {
+    /** The counts by <code>status type</code>, e.g. <code>404 urn:problem:java:com.example.FooNotFound</code> */
+    Map<String, Long> getCounts();
+
+    long getTotal();
+
+    void reset();
+}
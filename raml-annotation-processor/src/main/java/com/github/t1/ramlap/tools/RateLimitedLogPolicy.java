@@ -0,0 +1,117 @@
+package com.github.t1.ramlap.tools;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static com.github.t1.ramlap.tools.ProblemLogPolicy.*;
+import static java.util.Collections.*;
+
+/**
+ * Logs up to a number of problem details per second for each {@link ProblemDetail#kind() kind}, with bursts up to a
+ * maximum, i.e. a token bucket for each kind. The number of suppressed problem details is logged together with the
+ * next problem detail of the same kind that is logged, or, if none comes for as long as it takes to refill the whole
+ * burst, it's {@link #drainSuppressed() drained}, and the bucket is removed. There are buckets for up to
+ * {@link #MAX_KINDS} kinds; all further kinds share one bucket.
+ */
+public class RateLimitedLogPolicy implements ProblemLogPolicy {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /** The kinds are often type URIs that come from the outside, so there may be any number of them */
+    static final int MAX_KINDS = 1024;
+
+    /** The kind of the bucket for all problem details beyond the {@link #MAX_KINDS} */
+    static final String OTHER_KINDS = "other kinds";
+
+    private static class Bucket {
+        private double tokens;
+        private long lastRefill;
+        private long suppressed;
+        private boolean removed;
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+    }
+
+    private final double permitsPerNano;
+    private final int burst;
+    private final LongSupplier nanoClock;
+    private final Map<Object, Bucket> buckets = new ConcurrentHashMap<>();
+    /** The nanos it takes to refill the whole burst; then an unused bucket is the same as a new one */
+    private final long sweepInterval;
+    private final AtomicLong lastSweep;
+
+    /**
+     * @param permitsPerSecond the number of problem details of one kind logged per second in the long run
+     * @param burst the number of problem details of one kind that can be logged at once
+     */
+    public RateLimitedLogPolicy(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    RateLimitedLogPolicy(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1)
+            throw new IllegalArgumentException("permits per second and burst must be positive");
+        this.permitsPerNano = permitsPerSecond / NANOS_PER_SECOND;
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.sweepInterval = (long) Math.ceil(burst / permitsPerNano);
+        this.lastSweep = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    @Override
+    public long admit(ProblemDetail problem) {
+        Object kind = problem.kind();
+        if (!buckets.containsKey(kind) && buckets.size() >= MAX_KINDS)
+            kind = OTHER_KINDS;
+        while (true) {
+            Bucket bucket = buckets.computeIfAbsent(kind, k -> new Bucket(burst, nanoClock.getAsLong()));
+            synchronized (bucket) {
+                if (bucket.removed) {
+                    buckets.remove(kind, bucket);
+                    continue;
+                }
+                long now = nanoClock.getAsLong();
+                bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.lastRefill) * permitsPerNano);
+                bucket.lastRefill = now;
+                if (bucket.tokens < 1) {
+                    bucket.suppressed++;
+                    return SUPPRESS;
+                }
+                bucket.tokens--;
+                long suppressed = bucket.suppressed;
+                bucket.suppressed = 0;
+                return suppressed;
+            }
+        }
+    }
+
+    /** Removes the buckets that have not been used for a sweep interval; at most once per sweep interval */
+    @Override
+    public Map<Object, Long> drainSuppressed() {
+        long now = nanoClock.getAsLong();
+        long last = lastSweep.get();
+        if (now - last < sweepInterval || !lastSweep.compareAndSet(last, now))
+            return emptyMap();
+        Map<Object, Long> drained = new LinkedHashMap<>();
+        for (Map.Entry<Object, Bucket> entry : buckets.entrySet()) {
+            Bucket bucket = entry.getValue();
+            synchronized (bucket) {
+                if (now - bucket.lastRefill < sweepInterval)
+                    continue;
+                bucket.removed = true;
+                if (bucket.suppressed > 0)
+                    drained.put(entry.getKey(), bucket.suppressed);
+            }
+            buckets.remove(entry.getKey(), bucket);
+        }
+        return drained;
+    }
+
+    int kinds() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.t1.ramlap.tools;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.t1.ramlap.tools.ProblemLogPolicy.*;
+import static java.util.Collections.*;
+
+/**
+ * Logs only the first and then every n-th problem detail of each {@link ProblemDetail#kind() kind}, together with
+ * the number of problem details suppressed in between. When the counter of a kind didn't change between two sweeps
+ * (every {@link #SWEEP_INTERVAL} problem details of all kinds), the number suppressed since the last one logged is
+ * {@link #drainSuppressed() drained}, and the counter is removed. There are counters for up to {@link #MAX_KINDS}
+ * kinds; all further kinds share one counter.
+ */
+public class SampledLogPolicy implements ProblemLogPolicy {
+    /** The kinds are often type URIs that come from the outside, so there may be any number of them */
+    static final int MAX_KINDS = 1024;
+
+    /** The kind of the counter for all problem details beyond the {@link #MAX_KINDS} */
+    static final String OTHER_KINDS = "other kinds";
+
+    /** The number of problem details of all kinds between two sweeps, so a sweep costs less than one per admit */
+    static final int SWEEP_INTERVAL = MAX_KINDS;
+
+    /** The count of a counter that has been removed by a sweep */
+    private static final long REMOVED = -1;
+
+    private static class Counter {
+        private final AtomicLong count = new AtomicLong();
+        /** The count at the previous sweep; only used while sweeping */
+        private long swept = REMOVED;
+    }
+
+    private final int n;
+    private final Map<Object, Counter> counters = new ConcurrentHashMap<>();
+    private final AtomicLong admits = new AtomicLong();
+    private final AtomicLong lastSweep = new AtomicLong();
+
+    public SampledLogPolicy(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("n must be positive");
+        this.n = n;
+    }
+
+    @Override
+    public long admit(ProblemDetail problem) {
+        admits.incrementAndGet();
+        long count = increment(problem.kind());
+        if (count % n != 0)
+            return SUPPRESS;
+        return (count == 0) ? 0 : n - 1;
+    }
+
+    /** @return the count before the increment */
+    private long increment(Object kind) {
+        if (!counters.containsKey(kind) && counters.size() >= MAX_KINDS)
+            kind = OTHER_KINDS;
+        while (true) {
+            Counter counter = counters.computeIfAbsent(kind, k -> new Counter());
+            long count = counter.count.get();
+            if (count == REMOVED)
+                counters.remove(kind, counter);
+            else if (counter.count.compareAndSet(count, count + 1))
+                return count;
+        }
+    }
+
+    @Override
+    public Map<Object, Long> drainSuppressed() {
+        long current = admits.get();
+        long last = lastSweep.get();
+        if (current - last < SWEEP_INTERVAL || !lastSweep.compareAndSet(last, current))
+            return emptyMap();
+        Map<Object, Long> drained = new LinkedHashMap<>();
+        for (Map.Entry<Object, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long count = counter.count.get();
+            if (count != counter.swept) {
+                counter.swept = count;
+                continue;
+            }
+            if (!counter.count.compareAndSet(count, REMOVED))
+                continue;
+            counters.remove(entry.getKey(), counter);
+            long suppressed = (count - 1) % n;
+            if (suppressed > 0)
+                drained.put(entry.getKey(), suppressed);
+        }
+        return drained;
+    }
+
+    int kinds() {
+        return counters.size();
+    }
+}
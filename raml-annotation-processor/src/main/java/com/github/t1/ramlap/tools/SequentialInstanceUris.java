@@ -0,0 +1,56 @@
+package com.github.t1.ramlap.tools;
+
+import java.net.URI;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.github.t1.ramlap.tools.ProblemDetail.*;
+
+/**
+ * A fast {@link ProblemDetail#INSTANCE_URI_FACTORY} for many problem details, e.g. during an attack: it doesn't need
+ * the shared {@link SecureRandom} of {@link java.util.UUID#randomUUID()} for every instance, but creates URNs like
+ * <code>urn:problem-instance:5f0c6e1a9b2d4c38-2a</code> from a random node id, chosen once per JVM, and a sequence
+ * number. Each thread takes blocks of sequence numbers from a shared counter, so the threads don't contend, and the
+ * numbers grow within a thread, but not globally.
+ *
+ * <pre>
+ * <code>
+ * ProblemDetail.INSTANCE_URI_FACTORY = new SequentialInstanceUris();
+ * </code>
+ * </pre>
+ */
+public class SequentialInstanceUris implements Function<Class<? extends ProblemDetail>, URI> {
+    static final int BLOCK_SIZE = 1024;
+
+    private static class Block {
+        private long next;
+        private long end;
+    }
+
+    private final String prefix;
+    private final AtomicLong blocks = new AtomicLong();
+    private final ThreadLocal<Block> block = ThreadLocal.withInitial(Block::new);
+
+    public SequentialInstanceUris() {
+        this(Long.toHexString(new SecureRandom().nextLong()));
+    }
+
+    public SequentialInstanceUris(String node) {
+        this.prefix = URN_PROBLEM_INSTANCE_PREFIX + node + "-";
+    }
+
+    @Override
+    public URI apply(Class<? extends ProblemDetail> type) {
+        return URI.create(prefix + Long.toHexString(next()));
+    }
+
+    long next() {
+        Block current = block.get();
+        if (current.next == current.end) {
+            current.next = blocks.getAndIncrement() * BLOCK_SIZE;
+            current.end = current.next + BLOCK_SIZE;
+        }
+        return current.next++;
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.t1.ramlap.tools;
+
+import javax.ws.rs.core.Response;
+
+import com.github.t1.ramlap.annotations.ApiResponse;
+
+/**
+ * A {@link WebApplicationApplicationException} for a client error {@link ProblemDetail} marked as
+ * {@link ApiResponse#stackless() stackless}: it doesn't fill in a stack trace, and it builds (and logs) the
+ * {@link Response} only when it's first {@link #getResponse() needed}, e.g. by the exception mapper.
+ */
+public class StacklessWebException extends WebApplicationApplicationException {
+    private static final long serialVersionUID = 1L;
+
+    /** The super classes require a response, but we don't want to build one for every exception */
+    private static class Placeholder {
+        private static final Response RESPONSE = Response.noContent().build();
+    }
+
+    private final ProblemDetail problemDetail;
+    private transient volatile Response response;
+
+    public StacklessWebException(ProblemDetail problemDetail) {
+        super(null, Placeholder.RESPONSE);
+        this.problemDetail = problemDetail;
+    }
+
+    public ProblemDetail getProblemDetail() {
+        return problemDetail;
+    }
+
+    @Override
+    public Response getResponse() {
+        if (response == null)
+            buildResponse();
+        return response;
+    }
+
+    private synchronized void buildResponse() {
+        if (response == null)
+            response = problemDetail.toResponse();
+    }
+
+    @Override
+    public String getMessage() {
+        return "HTTP " + problemDetail.status().getStatusCode() + " " + problemDetail.status().getReasonPhrase();
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
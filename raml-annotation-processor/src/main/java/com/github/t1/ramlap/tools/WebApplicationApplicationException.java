@@ -15,4 +15,8 @@ public class WebApplicationApplicationException extends WebException {
     public WebApplicationApplicationException(Response response) {
         super(response);
     }
+
+    protected WebApplicationApplicationException(String message, Response response) {
+        super(message, response);
+    }
 }
@@ -14,6 +14,10 @@ public class WebException extends WebApplicationException {
         super(response);
     }
 
+    protected WebException(String message, Response response) {
+        super(message, response);
+    }
+
     /** Fluent alias to {@link #initCause(Throwable)} with non-checked type. */
     public WebException causedBy(Throwable cause) {
         super.initCause(cause);
@@ -0,0 +1,183 @@
+package com.github.t1.ramlap;
+
+import com.github.t1.exap.reflection.Type;
+import com.github.t1.ramlap.scanner.RamlScanner;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import org.raml.emitter.RamlEmitter;
+import org.raml.model.*;
+import org.raml.model.Resource;
+import org.raml.model.parameter.UriParameter;
+
+import javax.ws.rs.*;
+import javax.ws.rs.Path;
+import java.util.LinkedHashMap;
+
+import static com.github.t1.exap.reflection.ReflectionProcessingEnvironment.*;
+import static java.util.Collections.*;
+import static javax.tools.Diagnostic.Kind.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RamlFragmentCacheTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Path("/foo")
+    public static class FooResource {
+        @GET
+        @Path("/{id}")
+        public Pojo getFoo(@PathParam("id") String id) {
+            return null;
+        }
+
+        @POST
+        public void postFoo(Pojo pojo) {}
+    }
+
+    @Path("/{bar}")
+    public static class BarResource {
+        @GET
+        public void getBar() {}
+    }
+
+    @Path("/")
+    public static class OtherFooResource {
+        @GET
+        @Path("/foo/{id}")
+        @Produces("text/plain")
+        public String getOtherFoo(@PathParam("id") String id) {
+            return null;
+        }
+    }
+
+    @After
+    public void clearMessages() {
+        ENV.getMessages().clear();
+    }
+
+    private String scan(Type type) {
+        return new RamlEmitter().dump(new RamlScanner().scanJaxRsType(type).getResult());
+    }
+
+    private String scanCached(RamlFragmentCache cache, Type type) {
+        RamlScanner scanner = new RamlScanner();
+        cache.scan(type, scanner);
+        return new RamlEmitter().dump(scanner.getResult());
+    }
+
+    @Test
+    public void shouldScanOnMissAndLoadOnHit() throws Exception {
+        RamlFragmentCache cache = new RamlFragmentCache(folder.getRoot().toPath());
+        Type type = ENV.type(FooResource.class);
+        String expected = scan(type);
+
+        String first = scanCached(cache, type);
+        String second = scanCached(cache, type);
+
+        assertThat(first).isEqualTo(expected);
+        assertThat(second).isEqualTo(expected);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldHaveStableKey() {
+        Type type = ENV.type(FooResource.class);
+
+        String settings = new RamlScanner().getOutputSettings();
+        String rootSchemas = new RamlScanner().rootSchemas().getOutputSettings();
+        String xmlSchemaBatch = new RamlScanner().xmlSchemaBatch().getOutputSettings();
+
+        assertThat(RamlFragmentCache.key(type, settings))
+                .isEqualTo(RamlFragmentCache.key(ENV.type(FooResource.class), settings))
+                .isNotEqualTo(RamlFragmentCache.key(type, rootSchemas))
+                .isNotEqualTo(RamlFragmentCache.key(type, xmlSchemaBatch));
+    }
+
+    @Test
+    public void shouldReplayDiagnosticsOnHit() throws Exception {
+        RamlFragmentCache cache = new RamlFragmentCache(folder.getRoot().toPath());
+        Type type = ENV.type(BarResource.class);
+
+        scanCached(cache, type);
+        scanCached(cache, type);
+
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(ENV.getMessages(type.getMethod("getBar"), WARNING)).containsExactly(
+                "no path param annotated as 'bar' found, but required in GET of '/{bar}'",
+                "no path param annotated as 'bar' found, but required in GET of '/{bar}'");
+    }
+
+    @Test
+    public void shouldEscapeDiagnostics() {
+        String message = "tab\tnewline\nbackslash\\n";
+
+        assertThat(RamlFragmentCache.escape(message)).doesNotContain("\t").doesNotContain("\n");
+        assertThat(RamlFragmentCache.unescape(RamlFragmentCache.escape(message))).isEqualTo(message);
+    }
+
+    @Test
+    public void shouldMergeSamePathAndMethodOfTwoTypesLikeSerialScan() throws Exception {
+        RamlFragmentCache cache = new RamlFragmentCache(folder.getRoot().toPath());
+        Type foo = ENV.type(FooResource.class);
+        Type otherFoo = ENV.type(OtherFooResource.class);
+        String serial =
+                new RamlEmitter().dump(new RamlScanner().scanJaxRsType(foo).scanJaxRsType(otherFoo).getResult());
+        ENV.getMessages().clear();
+
+        for (int i = 0; i < 2; i++) {
+            RamlScanner scanner = new RamlScanner();
+            cache.scan(foo, scanner);
+            cache.scan(otherFoo, scanner);
+
+            assertThat(new RamlEmitter().dump(scanner.getResult())).isEqualTo(serial);
+        }
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(ENV.getMessages(otherFoo, NOTE))
+                .containsExactly("path not unique: GET /foo/{id}", "path not unique: GET /foo/{id}");
+    }
+
+    @Test
+    public void shouldMergeActionWithSamePathAndMethod() {
+        RamlScanner scanner = new RamlScanner();
+        Type type = mock(Type.class);
+
+        scanner.merge(type, fragment("first", "application/json"));
+        scanner.merge(type, fragment("second", "application/xml"));
+
+        Action action = scanner.getResult().getResource("/foo/{id}").getAction(ActionType.GET);
+        assertThat(action.getDescription()).isEqualTo("second");
+        assertThat(action.getBody()).containsOnlyKeys("application/json", "application/xml");
+        assertThat(action.getResource()).isSameAs(scanner.getResult().getResource("/foo/{id}"));
+        verify(type).note("path not unique: GET /foo/{id}");
+    }
+
+    @Test
+    public void shouldKeepFirstUriParameterWhenMerging() {
+        RamlScanner scanner = new RamlScanner();
+        Type type = mock(Type.class);
+
+        scanner.merge(type, fragment("first", "application/json"));
+        scanner.merge(type, fragment("second", "application/json"));
+
+        assertThat(scanner.getResult().getResource("/foo/{id}").getUriParameters().get("id").getDisplayName())
+                .isEqualTo("first");
+    }
+
+    private Raml fragment(String displayName, String mediaType) {
+        Resource resource = new Resource();
+        resource.setRelativeUri("/foo/{id}");
+        UriParameter parameter = new UriParameter();
+        parameter.setDisplayName(displayName);
+        resource.getUriParameters().put("id", parameter);
+        Action action = new Action();
+        action.setType(ActionType.GET);
+        action.setDescription(displayName);
+        action.setBody(new LinkedHashMap<>(singletonMap(mediaType, new MimeType(mediaType))));
+        resource.getActions().put(ActionType.GET, action);
+        Raml raml = new Raml();
+        raml.getResources().put("/foo/{id}", resource);
+        return raml;
+    }
+}
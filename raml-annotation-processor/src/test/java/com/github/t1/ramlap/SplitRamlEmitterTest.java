@@ -0,0 +1,140 @@
+package com.github.t1.ramlap;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import org.raml.emitter.RamlEmitter;
+import org.raml.model.*;
+import org.raml.parser.loader.FileResourceLoader;
+import org.raml.parser.visitor.RamlDocumentBuilder;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.Collections.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class SplitRamlEmitterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SplitRamlEmitter emitter = new SplitRamlEmitter("api");
+    private final Map<String, String> includes = new LinkedHashMap<>();
+
+    private Raml raml() {
+        Raml raml = new Raml();
+        raml.setTitle("api");
+        raml.getSchemas().add(singletonMap("java.util.List<foo.Bar>", "{\n  \"type\": \"array\"\n}\n"));
+        raml.getSchemas().add(singletonMap("foo.Bar-xml", "<?xml version=\"1.0\"?>\n<xs:schema/>\n"));
+        raml.getResources().put("/foo", resource("/foo", "foo", action(ActionType.GET, "get foo")));
+        raml.getResources().put("/bar/{id}", resource("/bar/{id}", "bar", action(ActionType.PUT, "put bar")));
+        raml.getResources().put("/empty", resource("/empty", "empty"));
+        return raml;
+    }
+
+    private Resource resource(String uri, String displayName, Action... actions) {
+        Resource resource = new Resource();
+        resource.setRelativeUri(uri);
+        resource.setDisplayName(displayName);
+        for (Action action : actions) {
+            action.setResource(resource);
+            resource.getActions().put(action.getType(), action);
+        }
+        return resource;
+    }
+
+    private Action action(ActionType type, String description) {
+        Action action = new Action();
+        action.setType(type);
+        action.setDescription(description);
+        return action;
+    }
+
+    private String emit(Raml raml) throws IOException {
+        emitter.emitIncludes(raml, includes::put);
+        StringWriter out = new StringWriter();
+        emitter.emit(raml, out);
+        return out.toString();
+    }
+
+    @Test
+    public void shouldIncludeSchemasAndResources() throws IOException {
+        String root = emit(raml());
+
+        assertThat(root).isEqualTo(RamlEmitter.VERSION + "\n"
+                + "title: api\n"
+                + "schemas: \n"
+                + "    - \n"
+                + "        java.util.List<foo.Bar>: !include api/schemas/java.util.List(foo.Bar).json\n"
+                + "    - \n"
+                + "        foo.Bar-xml: !include api/schemas/foo.Bar-xml.xsd\n"
+                + "/foo: !include api/resources/foo.raml\n"
+                + "/bar/{id}: !include api/resources/bar/{id}.raml\n"
+                + "/empty: \n"
+                + "    displayName: empty\n");
+        assertThat(includes.keySet()).containsExactly(
+                "api/schemas/java.util.List(foo.Bar).json",
+                "api/schemas/foo.Bar-xml.xsd",
+                "api/resources/foo.raml",
+                "api/resources/bar/{id}.raml");
+        assertThat(includes.get("api/schemas/java.util.List(foo.Bar).json")).isEqualTo("{\n  \"type\": \"array\"\n}\n");
+        assertThat(includes.get("api/resources/foo.raml")).isEqualTo(""
+                + "displayName: foo\n"
+                + "get: \n"
+                + "    description: get foo\n");
+    }
+
+    @Test
+    public void shouldParseLikeSingleDocument() throws IOException {
+        Raml raml = raml();
+        String root = emit(raml);
+        Path dir = folder.getRoot().toPath();
+        for (Map.Entry<String, String> include : includes.entrySet()) {
+            Path file = dir.resolve(include.getKey());
+            Files.createDirectories(file.getParent());
+            Files.write(file, include.getValue().getBytes(UTF_8));
+        }
+
+        Raml split = new RamlDocumentBuilder(new FileResourceLoader(dir.toFile())).build(root, "");
+
+        Raml single = new RamlDocumentBuilder().build(new RamlEmitter().dump(raml), "");
+        assertThat(new RamlEmitter().dump(split)).isEqualTo(new RamlEmitter().dump(single));
+    }
+
+    @Test
+    public void shouldDigestRootDocument() throws Exception {
+        Raml raml = raml();
+
+        String root = emit(raml);
+
+        assertThat(emitter.digest(raml))
+                .isEqualTo(MessageDigest.getInstance("SHA-256").digest(root.getBytes(UTF_8)));
+    }
+
+    @Test
+    public void shouldDeleteStaleIncludes() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Path stale = dir.resolve("api/resources/removed/{id}.raml");
+        Files.createDirectories(stale.getParent());
+        Files.write(stale, "get: \n".getBytes(UTF_8));
+        Path other = dir.resolve("api/other.txt");
+        Files.write(other, "keep".getBytes(UTF_8));
+        emit(raml());
+        for (Map.Entry<String, String> include : includes.entrySet()) {
+            Path file = dir.resolve(include.getKey());
+            Files.createDirectories(file.getParent());
+            Files.write(file, include.getValue().getBytes(UTF_8));
+        }
+
+        int deleted = emitter.deleteStaleIncludes(dir, includes.keySet());
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(stale).doesNotExist();
+        assertThat(stale.getParent()).doesNotExist();
+        assertThat(other).exists();
+        for (String include : includes.keySet())
+            assertThat(dir.resolve(include)).exists();
+    }
+}
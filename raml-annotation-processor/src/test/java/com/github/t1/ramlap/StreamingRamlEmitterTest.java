@@ -0,0 +1,117 @@
+package com.github.t1.ramlap;
+
+import com.github.t1.ramlap.scanner.RamlScanner;
+import org.junit.Test;
+import org.raml.emitter.RamlEmitter;
+import org.raml.model.*;
+
+import javax.ws.rs.*;
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.*;
+
+import static com.github.t1.exap.reflection.ReflectionProcessingEnvironment.*;
+import static java.nio.charset.StandardCharsets.*;
+import static javax.ws.rs.core.MediaType.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class StreamingRamlEmitterTest {
+    @Path("/foo")
+    public static class FooResource {
+        @GET
+        @Produces({ APPLICATION_JSON, APPLICATION_XML })
+        public Pojo getFoo() {
+            return null;
+        }
+
+        @POST
+        public void postFoo(Pojo pojo) {}
+    }
+
+    @Path("/bars")
+    public static class BarResource {
+        @GET
+        public List<Pojo> getBars() {
+            return null;
+        }
+    }
+
+    private String emit(Raml raml) throws IOException {
+        StringWriter out = new StringWriter();
+        new StreamingRamlEmitter().emit(raml, out);
+        return out.toString();
+    }
+
+    @Test
+    public void shouldEmitEmptyRamlLikeRamlEmitter() throws IOException {
+        Raml raml = new Raml();
+
+        assertThat(emit(raml)).isEqualTo(new RamlEmitter().dump(raml));
+    }
+
+    @Test
+    public void shouldEmitScannedRamlLikeRamlEmitter() throws IOException {
+        RamlScanner scanner = new RamlScanner().rootSchemas();
+        scanner.scanJaxRsType(ENV.type(FooResource.class));
+        scanner.scanJaxRsType(ENV.type(BarResource.class));
+        Raml raml = scanner.getResult();
+        raml.setTitle("test");
+        raml.setVersion("1.0");
+        DocumentationItem documentation = new DocumentationItem();
+        documentation.setTitle("Intro");
+        documentation.setContent("some text");
+        raml.getDocumentation().add(documentation);
+
+        assertThat(emit(raml)).isEqualTo(new RamlEmitter().dump(raml));
+    }
+
+    @Test
+    public void shouldEmitNestedResourcesLikeRamlEmitter() throws IOException {
+        Raml raml = new Raml();
+        raml.setTitle("nested");
+        Resource api = resource(raml.getResources(), "/api", "the api\n\nwith an empty line");
+        Resource foo = resource(api.getResources(), "/foo", "foo");
+        resource(foo.getResources(), "/{id}", "indented\n  block");
+        resource(api.getResources(), "/bar", null);
+
+        String expected = new RamlEmitter().dump(raml);
+
+        assertThat(emit(raml)).isEqualTo(expected);
+        assertThat(new RamlEmitter().dump(raml)).as("sub resources restored").isEqualTo(expected);
+    }
+
+    private Resource resource(Map<String, Resource> parent, String path, String description) {
+        Resource resource = new Resource();
+        resource.setRelativeUri(path);
+        resource.setDescription(description);
+        Action action = new Action();
+        action.setType(ActionType.GET);
+        action.setDescription(description);
+        resource.getActions().put(ActionType.GET, action);
+        parent.put(path, resource);
+        return resource;
+    }
+
+    @Test
+    public void shouldDigestEmittedRaml() throws Exception {
+        Raml raml = new Raml();
+        raml.setTitle("digest-test");
+        raml.setVersion("1.0");
+
+        byte[] digest = new StreamingRamlEmitter().digest(raml);
+
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest(emit(raml).getBytes(UTF_8));
+        assertThat(digest).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldDigestChangedRamlDifferently() {
+        Raml raml = new Raml();
+        raml.setTitle("digest-test");
+        byte[] before = new StreamingRamlEmitter().digest(raml);
+
+        raml.setVersion("1.1");
+
+        assertThat(new StreamingRamlEmitter().digest(raml)).isNotEqualTo(before);
+    }
+}
@@ -340,4 +340,43 @@ public class ExampleGeneratorJsonTest {
                 + "    }\n"
                 + "]\n");
     }
+
+    static class Node {
+        String name;
+        Node parent;
+        List<Node> children;
+    }
+
+    @Test
+    public void shouldCutOffRecursion() {
+        String example = ExampleGenerator.example(ENV.type(Node.class), APPLICATION_JSON);
+
+        assertThat(example).isEqualTo("{\n"
+                + "    \"name\":\"foo\",\n"
+                + "    \"children\":[\n"
+                + "    ]\n"
+                + "}\n");
+    }
+
+    static class LinkedNode {
+        String name;
+        LinkedNode parent;
+    }
+
+    @Test
+    public void shouldExpandRecursionUpToDepth() {
+        ExampleGenerator generator = new ExampleGenerator(new TypeClassifier(), 3);
+
+        String example = generator.generate(ENV.type(LinkedNode.class), APPLICATION_JSON);
+
+        assertThat(example).isEqualTo("{\n"
+                + "    \"name\":\"foo\",\n"
+                + "    \"parent\":{\n"
+                + "        \"name\":\"foo\",\n"
+                + "        \"parent\":{\n"
+                + "            \"name\":\"foo\"\n"
+                + "        }\n"
+                + "    }\n"
+                + "}\n");
+    }
 }
@@ -0,0 +1,87 @@
+package com.github.t1.ramlap.scanner;
+
+import com.github.t1.exap.reflection.Type;
+import com.github.t1.ramlap.Pojo;
+import org.junit.Test;
+
+import javax.xml.bind.annotation.*;
+import java.util.*;
+
+import static com.github.t1.exap.reflection.ReflectionProcessingEnvironment.*;
+import static com.github.t1.ramlap.Pojo.*;
+import static java.util.Arrays.*;
+import static javax.xml.bind.annotation.XmlAccessType.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class MirrorXmlSchemaGeneratorTest {
+    @XmlRootElement
+    public static class Container {
+        public Pojo pojo;
+        public Kind kind;
+        public List<Pojo> list;
+        public int count;
+    }
+
+    public enum Kind {
+        a,
+        b
+    }
+
+    @XmlRootElement(name = "fielded")
+    @XmlAccessorType(FIELD)
+    public static class FieldAccess {
+        @XmlAttribute(required = true)
+        private String id;
+        @XmlElement(name = "renamed", required = true)
+        private String value;
+        @XmlTransient
+        private String ignored;
+    }
+
+    private static String generate(Class<?> type) {
+        return new MirrorXmlSchemaGenerator(new TypeClassifier()).generate(ENV.type(type));
+    }
+
+    /** JAXB may order the components differently */
+    private static List<String> sortedLines(String schema) {
+        List<String> lines = asList(schema.split("\n"));
+        Collections.sort(lines);
+        return lines;
+    }
+
+    @Test
+    public void shouldGeneratePojo() {
+        assertThat(generate(Pojo.class)).isEqualTo(POJO_XML_SCHEMA);
+    }
+
+    @Test
+    public void shouldGenerateContainerLikeJaxb() {
+        Type container = ENV.type(Container.class);
+
+        assertThat(sortedLines(generate(Container.class)))
+                .isEqualTo(sortedLines(new XmlSchemaGenerator().generate(container)));
+    }
+
+    @Test
+    public void shouldGenerateFieldAccess() {
+        assertThat(generate(FieldAccess.class)).isEqualTo("<?xml version=\"1.0\" standalone=\"yes\"?>\n"
+                + "<xs:schema version=\"1.0\" xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">\n"
+                + "\n"
+                + "  <xs:element name=\"fielded\" type=\"fieldAccess\"/>\n"
+                + "\n"
+                + "  <xs:complexType name=\"fieldAccess\">\n"
+                + "    <xs:sequence>\n"
+                + "      <xs:element name=\"renamed\" type=\"xs:string\"/>\n"
+                + "    </xs:sequence>\n"
+                + "    <xs:attribute name=\"id\" type=\"xs:string\" use=\"required\"/>\n"
+                + "  </xs:complexType>\n"
+                + "</xs:schema>\n");
+    }
+
+    @Test
+    public void shouldBeUsedWhenConfigured() {
+        XmlSchemaGenerator generator = new XmlSchemaGenerator(false, true);
+
+        assertThat(generator.generate(ENV.type(FieldAccess.class))).isEqualTo(generate(FieldAccess.class));
+    }
+}
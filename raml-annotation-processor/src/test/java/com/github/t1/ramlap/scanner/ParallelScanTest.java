@@ -0,0 +1,69 @@
+package com.github.t1.ramlap.scanner;
+
+import com.github.t1.ramlap.Pojo;
+import com.github.t1.ramlap.tools.ProblemDetail.NotFound;
+import com.github.t1.ramlap.annotations.ApiResponse;
+import org.junit.Test;
+import org.raml.emitter.RamlEmitter;
+
+import javax.ws.rs.*;
+import java.util.List;
+
+import static com.github.t1.exap.reflection.ReflectionProcessingEnvironment.*;
+import static javax.ws.rs.core.MediaType.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class ParallelScanTest {
+    @Path("/foo")
+    public static class FooResource {
+        @GET
+        @Produces({ APPLICATION_JSON, APPLICATION_XML })
+        @ApiResponse(type = NotFound.class)
+        public Pojo getFoo() {
+            return null;
+        }
+
+        @POST
+        public void postFoo(Pojo pojo) {}
+    }
+
+    @Path("/bars")
+    public static class BarResource {
+        @GET
+        public List<Pojo> getBars() {
+            return null;
+        }
+
+        @PUT
+        @Path("/{id}")
+        public void putBar(@PathParam("id") int id, Pojo pojo) {}
+    }
+
+    private String scan(int parallelism) {
+        RamlScanner scanner = new RamlScanner().parallelism(parallelism);
+        scanner.scanJaxRsType(ENV.type(FooResource.class));
+        scanner.scanJaxRsType(ENV.type(BarResource.class));
+        return new RamlEmitter().dump(scanner.getResult());
+    }
+
+    @Test
+    public void shouldProduceSameOutputAsSerialScan() {
+        String serial = scan(1);
+
+        String parallel = scan(4);
+
+        assertThat(parallel).isEqualTo(serial);
+    }
+
+    @Test
+    public void shouldScanAgainAfterPoolWasShutDownOnCompletion() {
+        RamlScanner scanner = new RamlScanner().parallelism(4);
+        scanner.scanJaxRsType(ENV.type(FooResource.class));
+        scanner.getResult();
+
+        scanner.scanJaxRsType(ENV.type(BarResource.class));
+        String parallel = new RamlEmitter().dump(scanner.getResult());
+
+        assertThat(parallel).isEqualTo(scan(1));
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.t1.ramlap.scanner;
+
+import org.junit.Test;
+
+import javax.json.*;
+import java.io.*;
+
+import static com.github.t1.ramlap.scanner.ProcessingMetrics.Count.*;
+import static com.github.t1.ramlap.scanner.ProcessingMetrics.Phase.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class ProcessingMetricsTest {
+    private final ProcessingMetrics metrics = new ProcessingMetrics();
+
+    private JsonObject json() {
+        StringWriter out = new StringWriter();
+        metrics.writeJson(out);
+        try (JsonReader reader = Json.createReader(new StringReader(out.toString()))) {
+            return reader.readObject();
+        }
+    }
+
+    @Test
+    public void shouldRecordPhases() {
+        String result = metrics.time(JSON_SCHEMA, () -> "schema");
+        metrics.record(JSON_SCHEMA, 2_500_000);
+
+        assertThat(result).isEqualTo("schema");
+        assertThat(metrics.getCalls(JSON_SCHEMA)).isEqualTo(2);
+        assertThat(metrics.getNanos(JSON_SCHEMA)).isGreaterThanOrEqualTo(2_500_000);
+        assertThat(metrics.getCalls(EXAMPLE)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRecordScannedTypes() {
+        metrics.scanned("foo.Bar", 1_000_000);
+        metrics.scanned("foo.Bar", 500_000);
+        metrics.scanned("foo.Baz", 250_000);
+
+        assertThat(metrics.getCalls(SCAN)).isEqualTo(3);
+        assertThat(metrics.getNanos(SCAN)).isEqualTo(1_750_000);
+        assertThat(metrics.getCount(TYPES)).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldNotRecordWhenDisabled() {
+        ProcessingMetrics disabled = ProcessingMetrics.DISABLED;
+
+        String result = disabled.time(EXAMPLE, () -> "example");
+        disabled.scanned("foo.Bar", 1_000_000);
+        disabled.count(SCHEMAS, 1);
+
+        assertThat(result).isEqualTo("example");
+        assertThat(disabled.isEnabled()).isFalse();
+        assertThat(disabled.getCalls(EXAMPLE)).isEqualTo(0);
+        assertThat(disabled.getCalls(SCAN)).isEqualTo(0);
+        assertThat(disabled.getCount(SCHEMAS)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldWriteJson() {
+        metrics.record(XML_SCHEMA_BATCH, 1_234_567);
+        metrics.scanned("foo.Bar", 2_000_000);
+        metrics.count(METHODS, 3);
+        metrics.cache("schemaCache", 3, 1);
+
+        JsonObject json = json();
+
+        JsonObject batch = json.getJsonObject("phases").getJsonObject("xmlSchemaBatch");
+        assertThat(batch.getInt("calls")).isEqualTo(1);
+        assertThat(batch.getJsonNumber("millis").bigDecimalValue()).isEqualByComparingTo("1.234");
+        assertThat(json.getJsonObject("counts").getInt("types")).isEqualTo(1);
+        assertThat(json.getJsonObject("counts").getInt("methods")).isEqualTo(3);
+        assertThat(json.getJsonObject("counts").getInt("classifiedTypes")).isEqualTo(0);
+        JsonObject cache = json.getJsonObject("caches").getJsonObject("schemaCache");
+        assertThat(cache.getInt("hits")).isEqualTo(3);
+        assertThat(cache.getInt("misses")).isEqualTo(1);
+        assertThat(cache.getJsonNumber("hitRate").doubleValue()).isEqualTo(0.75);
+        assertThat(json.getJsonObject("typeMillis").getJsonNumber("foo.Bar").bigDecimalValue())
+                .isEqualByComparingTo("2");
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.t1.ramlap.scanner;
+
+import com.github.t1.ramlap.Pojo;
+import org.junit.Test;
+import org.raml.emitter.RamlEmitter;
+import org.raml.model.*;
+
+import javax.ws.rs.*;
+import java.util.*;
+
+import static com.github.t1.exap.reflection.ReflectionProcessingEnvironment.*;
+import static com.github.t1.ramlap.Pojo.*;
+import static java.util.Collections.*;
+import static javax.ws.rs.core.MediaType.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class RootSchemasTest {
+    private static final String POJO = Pojo.class.getName();
+
+    @Path("/foo")
+    public static class FooResource {
+        @GET
+        @Produces({ APPLICATION_JSON, APPLICATION_XML })
+        public Pojo getFoo() {
+            return null;
+        }
+
+        @POST
+        public void postFoo(Pojo pojo) {}
+    }
+
+    @Path("/bars")
+    public static class BarResource {
+        @GET
+        public List<Pojo> getBars() {
+            return null;
+        }
+
+        @PUT
+        public void putBar(Pojo pojo) {}
+    }
+
+    private Raml scan(RamlScanner scanner) {
+        scanner.scanJaxRsType(ENV.type(FooResource.class));
+        scanner.scanJaxRsType(ENV.type(BarResource.class));
+        return scanner.getResult();
+    }
+
+    private Map<String, MimeType> responseBody(Raml raml, String path, ActionType actionType) {
+        return raml.getResource(path).getAction(actionType).getResponses().get("200").getBody();
+    }
+
+    @Test
+    public void shouldReferToRootSchemas() {
+        Raml raml = scan(new RamlScanner().rootSchemas());
+
+        assertThat(raml.getSchemas()).hasSize(3);
+        assertThat(raml.getSchemas().get(0)).isEqualTo(singletonMap(POJO, POJO_JSON_SCHEMA));
+        assertThat(raml.getSchemas().get(1)).isEqualTo(singletonMap(POJO + "-xml", POJO_XML_SCHEMA));
+        assertThat(raml.getSchemas().get(2)).containsOnlyKeys("java.util.List<" + POJO + ">");
+        assertThat(responseBody(raml, "/foo", ActionType.GET).get(APPLICATION_JSON).getSchema()).isEqualTo(POJO);
+        assertThat(responseBody(raml, "/foo", ActionType.GET).get(APPLICATION_XML).getSchema()).isEqualTo(POJO + "-xml");
+        assertThat(raml.getResource("/foo").getAction(ActionType.POST).getBody().get(APPLICATION_JSON).getSchema())
+                .isEqualTo(POJO);
+        assertThat(raml.getResource("/bars").getAction(ActionType.PUT).getBody().get(APPLICATION_JSON).getSchema())
+                .isEqualTo(POJO);
+    }
+
+    @Test
+    public void shouldReferToRootSchemasWhenGeneratingInParallel() {
+        RamlEmitter emitter = new RamlEmitter();
+
+        String serial = emitter.dump(scan(new RamlScanner().rootSchemas()));
+        String parallel = emitter.dump(scan(new RamlScanner().rootSchemas().parallelism(4)));
+
+        assertThat(parallel).isEqualTo(serial);
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.t1.ramlap.scanner;
+
+import com.github.t1.ramlap.Pojo;
+import org.junit.Test;
+
+import static com.github.t1.exap.reflection.ReflectionProcessingEnvironment.*;
+import static com.github.t1.ramlap.Pojo.*;
+import static javax.ws.rs.core.MediaType.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class SchemaCacheTest {
+    private final TypeInfo pojo = new TypeInfo(ENV.type(Pojo.class));
+
+    @Test
+    public void shouldGenerateOnMissAndReuseOnHit() {
+        SchemaCache cache = new SchemaCache();
+
+        String first = cache.schema(pojo, APPLICATION_JSON);
+        String second = cache.schema(pojo, "application/vnd.pojo+json");
+
+        assertThat(first).isEqualTo(POJO_JSON_SCHEMA);
+        assertThat(second).isSameAs(first);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDistinguishJsonAndXml() {
+        SchemaCache cache = new SchemaCache();
+
+        String json = cache.schema(pojo, APPLICATION_JSON);
+        String xml = cache.schema(pojo, APPLICATION_XML);
+
+        assertThat(json).isEqualTo(POJO_JSON_SCHEMA);
+        assertThat(xml).isEqualTo(POJO_XML_SCHEMA);
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        SchemaCache cache = new SchemaCache(1);
+
+        cache.schema(pojo, APPLICATION_JSON);
+        cache.schema(pojo, APPLICATION_XML);
+        cache.schema(pojo, APPLICATION_JSON);
+
+        assertThat(cache.getMisses()).isEqualTo(3);
+        assertThat(cache.getHits()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotCacheSimpleTypes() {
+        SchemaCache cache = new SchemaCache();
+
+        String schema = cache.schema(new TypeInfo(ENV.type(String.class)), APPLICATION_JSON);
+
+        assertThat(schema).isNull();
+        assertThat(cache.getMisses()).isEqualTo(0);
+    }
+}
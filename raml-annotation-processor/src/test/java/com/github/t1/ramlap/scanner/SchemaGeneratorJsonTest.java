@@ -454,5 +454,38 @@ public class SchemaGeneratorJsonTest {
                 + "}\n", json);
     }
 
+    public static class Node {
+        String name;
+        Node parent;
+        List<Node> children;
+    }
+
+    @Test
+    public void shouldGenerateReferenceForRecursiveType() {
+        String json = jsonSchema(Node.class);
+
+        String id = "urn:jsonschema:com:github:t1:ramlap:scanner:SchemaGeneratorJsonTest:Node";
+        assertEquals(""
+                + "{\n"
+                + SCHEMA
+                + "    \"type\":\"object\",\n"
+                + "    \"id\":\"" + id + "\",\n"
+                + "    \"properties\":{\n"
+                + "        \"name\":{\n"
+                + "            \"type\":\"string\"\n"
+                + "        },\n"
+                + "        \"parent\":{\n"
+                + "            \"$ref\":\"" + id + "\"\n"
+                + "        },\n"
+                + "        \"children\":{\n"
+                + "            \"type\":\"array\",\n"
+                + "            \"items\":{\n"
+                + "                \"$ref\":\"" + id + "\"\n"
+                + "            }\n"
+                + "        }\n"
+                + "    }\n"
+                + "}\n", json);
+    }
+
     // TODO Map
 }
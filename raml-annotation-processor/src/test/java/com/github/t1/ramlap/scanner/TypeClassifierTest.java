@@ -0,0 +1,80 @@
+package com.github.t1.ramlap.scanner;
+
+import com.github.t1.ramlap.Pojo;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response.*;
+import java.net.URI;
+import java.util.List;
+
+import static com.github.t1.exap.reflection.ReflectionProcessingEnvironment.*;
+import static com.github.t1.ramlap.scanner.TypeClassifier.Kind.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class TypeClassifierTest {
+    public enum Kind {
+        a,
+        b
+    }
+
+    public static class StringWrapper {
+        public static StringWrapper fromString(String string) {
+            return new StringWrapper();
+        }
+
+        @Override
+        public String toString() {
+            return "foo";
+        }
+    }
+
+    public static class Holder {
+        public List<Pojo[]> pojos;
+    }
+
+    private final TypeClassifier classifier = new TypeClassifier();
+
+    @Test
+    public void shouldClassifyTypes() {
+        assertThat(classifier.kind(ENV.type(boolean.class))).isEqualTo(BOOLEAN);
+        assertThat(classifier.kind(ENV.type(Long.class))).isEqualTo(INTEGER);
+        assertThat(classifier.kind(ENV.type(StatusType.class))).isEqualTo(INTEGER);
+        assertThat(classifier.kind(ENV.type(double.class))).isEqualTo(FLOATING);
+        assertThat(classifier.kind(ENV.type(String.class))).isEqualTo(STRING);
+        assertThat(classifier.kind(ENV.type(URI.class))).isEqualTo(STRING);
+        assertThat(classifier.kind(ENV.type(Status.class))).isEqualTo(STRING);
+        assertThat(classifier.kind(ENV.type(StringWrapper.class))).isEqualTo(STRING);
+        assertThat(classifier.kind(ENV.type(Kind.class))).isEqualTo(ENUM);
+        assertThat(classifier.kind(ENV.type(Pojo[].class))).isEqualTo(ARRAY);
+        assertThat(classifier.kind(ENV.type(Pojo.class))).isEqualTo(OBJECT);
+    }
+
+    @Test
+    public void shouldProvideEnumValuesAndElementType() {
+        assertThat(classifier.enumValues(ENV.type(Kind.class))).containsExactly("a", "b");
+        assertThat(classifier.elementType(ENV.type(Pojo[].class)).getFullName()).isEqualTo(Pojo.class.getName());
+        assertThat(classifier.elementType(ENV.type(Pojo.class))).isNull();
+    }
+
+    @Test
+    public void shouldClassifyEachTypeOnlyOnce() {
+        classifier.kind(ENV.type(StringWrapper.class));
+        classifier.kind(ENV.type(StringWrapper.class));
+        classifier.enumValues(ENV.type(StringWrapper.class));
+
+        assertThat(classifier.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNameTypesWithTypeParametersAndArrays() {
+        assertThat(TypeClassifier.typeName(ENV.type(Holder.class).getAllFields().get(0).getType()))
+                .isEqualTo("java.util.List<" + Pojo.class.getName() + "[]>");
+    }
+
+    @Test
+    public void shouldUseTypeNameForSchemaName() {
+        TypeInfo typeInfo = new TypeInfo(ENV.type(Holder.class).getAllFields().get(0).getType());
+
+        assertThat(typeInfo.schemaName("application/json")).isEqualTo("java.util.List<" + Pojo.class.getName() + "[]>");
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.t1.ramlap.scanner;
+
+import com.github.t1.exap.reflection.Type;
+import com.github.t1.ramlap.Pojo;
+import org.junit.Test;
+
+import javax.xml.bind.annotation.*;
+import java.util.*;
+
+import static com.github.t1.exap.reflection.ReflectionProcessingEnvironment.*;
+import static com.github.t1.ramlap.Pojo.*;
+import static java.util.Arrays.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class XmlSchemaGeneratorTest {
+    @XmlRootElement
+    public static class Container {
+        public Pojo pojo;
+        public Kind kind;
+    }
+
+    public enum Kind {
+        a,
+        b
+    }
+
+    @XmlRootElement
+    public static class Other {
+        public String name;
+    }
+
+    /** the batch may order the components differently */
+    private static List<String> sortedLines(String schema) {
+        List<String> lines = asList(schema.split("\n"));
+        Collections.sort(lines);
+        return lines;
+    }
+
+    @Test
+    public void shouldReuseGeneratedSchema() {
+        XmlSchemaGenerator generator = new XmlSchemaGenerator();
+
+        String first = generator.generate(ENV.type(Pojo.class));
+        String second = generator.generate(ENV.type(Pojo.class));
+
+        assertThat(first).isEqualTo(POJO_XML_SCHEMA);
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void shouldSplitBatchIntoSameSchemasAsSingleTypes() {
+        Type pojo = ENV.type(Pojo.class);
+        Type container = ENV.type(Container.class);
+        Type other = ENV.type(Other.class);
+        XmlSchemaGenerator batch = new XmlSchemaGenerator(true, false);
+
+        batch.prepare(asList(pojo, container, other));
+
+        assertThat(batch.generate(pojo)).isEqualTo(POJO_XML_SCHEMA);
+        assertThat(sortedLines(batch.generate(container)))
+                .isEqualTo(sortedLines(new XmlSchemaGenerator().generate(container)));
+        assertThat(batch.generate(other)).isEqualTo(new XmlSchemaGenerator().generate(other));
+    }
+}
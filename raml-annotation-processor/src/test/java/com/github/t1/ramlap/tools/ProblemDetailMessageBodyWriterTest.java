@@ -0,0 +1,136 @@
+package com.github.t1.ramlap.tools;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.*;
+import com.github.t1.ramlap.annotations.ApiResponse;
+import com.github.t1.ramlap.tools.ProblemDetail.*;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+
+import static com.github.t1.ramlap.tools.ProblemDetail.*;
+import static java.nio.charset.StandardCharsets.*;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class ProblemDetailMessageBodyWriterTest {
+    public static class FooProblem extends ProblemDetail {}
+
+    @ApiResponse(status = CONFLICT, title = "bär \"conflict\"")
+    public static class ConflictProblem extends ProblemDetail {}
+
+    private final ObjectMapper mapper = new ObjectMapper().setSerializationInclusion(Include.NON_EMPTY);
+    private final ProblemDetailMessageBodyWriter writer = new ProblemDetailMessageBodyWriter();
+
+    private String write(ProblemDetail problem) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(problem, problem.getClass(), problem.getClass(), null, APPLICATION_PROBLEM_JSON_TYPE, null,
+                out);
+        return new String(out.toByteArray(), UTF_8);
+    }
+
+    private void assertLikeJackson(ProblemDetail problem) throws Exception {
+        String json = write(problem);
+
+        assertThat(json).isEqualTo(mapper.writeValueAsString(problem));
+        assertThat(mapper.readValue(json, ProblemDetail.class)).isEqualTo(problem);
+    }
+
+    @Test
+    public void shouldBeWriteableForSubclasses() {
+        assertThat(writer.isWriteable(NotFound.class, null, null, APPLICATION_PROBLEM_JSON_TYPE)).isTrue();
+        assertThat(writer.isWriteable(String.class, null, null, APPLICATION_PROBLEM_JSON_TYPE)).isFalse();
+    }
+
+    @Test
+    public void shouldWriteDefaultsLikeJackson() throws Exception {
+        assertLikeJackson(new FooProblem());
+    }
+
+    @Test
+    public void shouldWriteDetailLikeJackson() throws Exception {
+        assertLikeJackson(new FooProblem().detail("quote \" backslash \\ tab \t bell \u0007 umlaut ü euro € clef 𝄞"));
+    }
+
+    @Test
+    public void shouldWriteAnnotatedTitleLikeJackson() throws Exception {
+        assertLikeJackson(new ConflictProblem().detail("foo"));
+    }
+
+    @Test
+    public void shouldWritePlainProblemDetailWithoutTitleLikeJackson() throws Exception {
+        assertLikeJackson(new ProblemDetail().detail("foo"));
+    }
+
+    @Test
+    public void shouldWriteChangedFieldsLikeJackson() throws Exception {
+        write(new FooProblem()); // cache the defaults
+
+        ProblemDetail problem = new FooProblem()
+                .type(URI.create("http://example.org/problems/foo"))
+                .title("other")
+                .status(NOT_FOUND)
+                .instance(URI.create("urn:problem-instance:1"));
+
+        assertThat(write(problem)).isEqualTo(mapper.writeValueAsString(problem));
+    }
+
+    @Test
+    public void shouldWriteEmptyObjectWhenEverythingIsNull() throws Exception {
+        ProblemDetail problem = new ProblemDetail().type(null).title(null).status(null).instance(null);
+
+        assertThat(write(problem)).isEqualTo("{}");
+    }
+
+    @Test
+    public void shouldWriteNonStandardStatusAsCodeAndReadItBack() throws Exception {
+        ProblemDetail problem =
+                new FooProblem().status(new NonStandardStatus(499)).instance(URI.create("urn:problem-instance:1"));
+
+        String json = write(problem);
+
+        assertThat(json).isEqualTo("{"
+                + "\"type\":\"" + URN_PROBLEM_JAVA_PREFIX + FooProblem.class.getName() + "\","
+                + "\"title\":\"foo problem\","
+                + "\"status\":499,"
+                + "\"instance\":\"urn:problem-instance:1\""
+                + "}");
+        ProblemDetail read = mapper.readValue(json, ProblemDetail.class);
+        assertThat(read).isEqualTo(problem);
+        assertThat(read.status()).isInstanceOf(NonStandardStatus.class);
+    }
+
+    @Test
+    public void shouldReadStandardStatusCode() throws Exception {
+        ProblemDetail read = mapper.readValue("{\"status\":404}", ProblemDetail.class);
+
+        assertThat(read.status()).isEqualTo(NOT_FOUND);
+    }
+
+    @Test
+    public void shouldEscapeUnpairedSurrogates() throws Exception {
+        ProblemDetail problem = new FooProblem().detail("high \ud834 low \udd1e").instance(null);
+
+        String json = write(problem);
+
+        assertThat(json).endsWith("\"detail\":\"high \\ud834 low \\udd1e\"}");
+        assertThat(mapper.readValue(json, ProblemDetail.class).detail()).isEqualTo(problem.detail());
+    }
+
+    @Test
+    public void shouldWriteLocalClassLikeJackson() throws Exception {
+        class LocalProblem extends ProblemDetail {}
+        write(new LocalProblem().title("changed")); // no defaults to cache
+        ProblemDetail problem = new LocalProblem().detail("foo");
+
+        assertThat(write(problem)).isEqualTo(mapper.writeValueAsString(problem));
+    }
+
+    @Test
+    public void shouldWriteToBytes() throws Exception {
+        ProblemDetail problem = new FooProblem().detail("foo");
+
+        assertThat(new String(writer.toBytes(problem), UTF_8)).isEqualTo(write(problem));
+    }
+}
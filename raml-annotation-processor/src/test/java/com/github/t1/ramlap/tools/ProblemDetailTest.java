@@ -16,10 +16,12 @@ import javax.ws.rs.core.Response;
 import javax.xml.bind.JAXB;
 import java.io.*;
 import java.net.URI;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import static com.github.t1.ramlap.tools.ProblemDetail.*;
+import static java.util.Collections.*;
 import static javax.ws.rs.core.Response.Status.*;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -50,6 +52,10 @@ public class ProblemDetailTest {
     public final MementoRule<Function<ProblemDetail, Logger>> loggerFactoryMemento =
             new MementoRule<>(() -> LOGGER, v -> LOGGER = v, t -> logger);
 
+    @Rule
+    public final MementoRule<ProblemLogPolicy> logPolicyMemento =
+            new MementoRule<>(() -> LOG_POLICY, v -> LOG_POLICY = v, ProblemLogPolicy.ALL);
+
     private URI problemUrn(Class<? extends ProblemDetail> type) {
         return URI.create(URN_PROBLEM_JAVA_PREFIX + type.getName());
     }
@@ -66,6 +72,14 @@ public class ProblemDetailTest {
         assertThat(problem.isServerError()).isFalse();
     }
 
+    @Test
+    public void shouldTakeTypeUriOrClassAsKind() {
+        URI uri = URI.create("http://example.org");
+
+        assertThat(ProblemDetail.of(uri).kind()).isEqualTo(uri);
+        assertThat(new ProblemDetail().type(null).kind()).isEqualTo(ProblemDetail.class);
+    }
+
     @Test
     public void shouldConstructFromHttpTypeUri() {
         URI uri = URI.create("http://example.org");
@@ -93,6 +107,65 @@ public class ProblemDetailTest {
         assertThat(problem.instance()).isEqualTo(instanceUrn);
     }
 
+    @Test
+    public void shouldConstructFromJavaTypeUri() {
+        ProblemDetail problem = ProblemDetail.of(problemUrn(NotFound.class));
+
+        assertThat(problem).isInstanceOf(NotFound.class);
+        assertThat(ProblemDetail.of(problemUrn(NotFound.class))).isInstanceOf(NotFound.class);
+    }
+
+    @Test
+    public void shouldConstructFromIncompatibleJavaTypeUri() {
+        URI uri = URI.create(URN_PROBLEM_JAVA_PREFIX + String.class.getName());
+
+        ProblemDetail problem = ProblemDetail.of(uri);
+
+        assertThat(problem.getClass()).isEqualTo(ProblemDetail.class);
+        assertThat(problem.type()).isEqualTo(uri);
+    }
+
+    @Test
+    public void shouldConstructFromUninstantiableJavaTypeUri() {
+        class LocalProblem extends ProblemDetail {}
+        URI uri = problemUrn(LocalProblem.class);
+
+        ProblemDetail problem = ProblemDetail.of(uri);
+
+        assertThat(problem.getClass()).isEqualTo(ProblemDetail.class);
+        assertThat(problem.type()).isEqualTo(uri);
+    }
+
+    @Test
+    public void shouldBoundCacheOfJavaTypes() {
+        for (int i = 0; i < 2 * MAX_JAVA_TYPES; i++)
+            ProblemDetail.of(URI.create(URN_PROBLEM_JAVA_PREFIX + "undefined.Type" + i));
+
+        assertThat(javaTypes()).isBetween(1, MAX_JAVA_TYPES);
+    }
+
+    @Test
+    public void shouldCacheKnownJavaTypes() {
+        ProblemDetail first = ProblemDetail.of(problemUrn(NotFound.class));
+        ProblemDetail second = ProblemDetail.of(problemUrn(NotFound.class));
+
+        assertThat(cachedJavaType(NotFound.class.getName())).isEqualTo(NotFound.class);
+        assertThat(first).isInstanceOf(NotFound.class);
+        assertThat(second).isInstanceOf(NotFound.class);
+    }
+
+    @Test
+    public void shouldCacheUnknownJavaTypes() {
+        ProblemDetail.of(URI.create(URN_PROBLEM_JAVA_PREFIX + "undefined.CachedType"));
+        int before = javaTypes();
+
+        ProblemDetail problem = ProblemDetail.of(URI.create(URN_PROBLEM_JAVA_PREFIX + "undefined.CachedType"));
+
+        assertThat(javaTypes()).isEqualTo(before);
+        assertThat(cachedJavaType("undefined.CachedType")).isNull();
+        assertThat(problem.getClass()).isEqualTo(ProblemDetail.class);
+    }
+
     @Test
     public void shouldConstructSubclassWithDefaultValues() {
         FooProblem problem = new FooProblem();
@@ -132,6 +205,25 @@ public class ProblemDetailTest {
         assertThat(problem.instance()).isEqualTo(instanceUrn);
     }
 
+    @Test
+    public void shouldReuseTypeUriOfClass() {
+        assertThat(new FooProblem().type()).isSameAs(new FooProblem().type());
+    }
+
+    @Test
+    public void shouldUseReplacedTypeUriFactory() {
+        Function<Class<? extends ProblemDetail>, URI> original = TYPE_URI_FACTORY;
+        new FooProblem(); // cache the type uri
+        try {
+            TYPE_URI_FACTORY = t -> URI.create("http://example.org/" + t.getSimpleName());
+
+            assertThat(new FooProblem().type()).isEqualTo(URI.create("http://example.org/FooProblem"));
+        } finally {
+            TYPE_URI_FACTORY = original;
+        }
+        assertThat(new FooProblem().type()).isEqualTo(problemUrn(FooProblem.class));
+    }
+
     @Test
     public void shouldConstructInternalServerError() {
         ProblemDetail problem = new InternalServerError();
@@ -144,6 +236,111 @@ public class ProblemDetailTest {
         assertThat(problem.isServerError()).isTrue();
     }
 
+    @Test
+    public void shouldCreateInstanceUriLazily() {
+        AtomicInteger calls = new AtomicInteger();
+        INSTANCE_URI_FACTORY = t -> URI.create("dummy:" + calls.incrementAndGet());
+
+        FooProblem problem = new FooProblem();
+
+        assertThat(calls.get()).isEqualTo(0);
+        assertThat(problem.instance()).isEqualTo(URI.create("dummy:1"));
+        assertThat(problem.instance()).isEqualTo(URI.create("dummy:1"));
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeepExplicitNullInstance() {
+        ProblemDetail problem = new FooProblem().instance(null);
+
+        assertThat(problem.instance()).isNull();
+    }
+
+    @Test
+    public void shouldKeepInstanceOfCopyOfCreatedInstance() {
+        FooProblem problem = new FooProblem();
+        URI instance = problem.instance();
+        INSTANCE_URI_FACTORY = t -> URI.create("dummy:other");
+
+        assertThat(problem.detail("foo").instance()).isEqualTo(instance);
+    }
+
+    @Test
+    public void shouldBuildWithDefaults() {
+        ProblemDetail problem = ProblemDetail.builder(FooProblem.class).build();
+
+        assertThat(problem).isInstanceOf(FooProblem.class).isEqualTo(new FooProblem());
+    }
+
+    @Test
+    public void shouldBuildWithAllFields() {
+        URI type = URI.create("http://example.org/foo");
+        URI instance = URI.create("dummy:instance");
+
+        ProblemDetail problem = ProblemDetail.builder(FooProblem.class)
+                .type(type)
+                .title("foo title")
+                .status(NOT_FOUND)
+                .detail("foo detail")
+                .instance(instance)
+                .build();
+
+        assertThat(problem).isInstanceOf(FooProblem.class);
+        assertThat(problem.type()).isEqualTo(type);
+        assertThat(problem.title()).isEqualTo("foo title");
+        assertThat(problem.status()).isEqualTo(NOT_FOUND);
+        assertThat(problem.detail()).isEqualTo("foo detail");
+        assertThat(problem.instance()).isEqualTo(instance);
+    }
+
+    @Test
+    public void shouldBuildPlainProblemDetail() {
+        ProblemDetail problem = ProblemDetail.builder().status(CONFLICT).build();
+
+        assertThat(problem.getClass()).isEqualTo(ProblemDetail.class);
+        assertThat(problem.status()).isEqualTo(CONFLICT);
+        assertThat(problem.title()).isNull();
+    }
+
+    @Test
+    public void shouldBuildFromExistingProblemDetail() {
+        FooProblem original = new FooProblem();
+
+        ProblemDetail problem = original.toBuilder().detail("foo detail").build();
+
+        assertThat(problem).isNotSameAs(original).isEqualTo(original.detail("foo detail"));
+        assertThat(original.detail()).isNull();
+    }
+
+    @Test
+    public void shouldFailToBuildUninstantiableType() {
+        class LocalProblem extends ProblemDetail {}
+
+        Throwable thrown = catchThrowable(() -> ProblemDetail.builder(LocalProblem.class).build());
+
+        assertThat(thrown).isInstanceOf(RuntimeException.class).hasMessageContaining(LocalProblem.class.getName());
+    }
+
+    @Test
+    public void shouldBuildWebException() {
+        WebException webException = ProblemDetail.builder(NotFound.class).detail("foo").toWebException();
+
+        ProblemDetail problem = ProblemDetail.of(webException);
+        assertThat(webException).isInstanceOf(WebApplicationApplicationException.class);
+        assertThat(problem).isInstanceOf(NotFound.class);
+        assertThat(problem.detail()).isEqualTo("foo");
+        verify(logger).info("{}", problem);
+    }
+
+    @Test
+    public void shouldBuildResponse() {
+        Response response = ProblemDetail.builder(InternalServerError.class).detail("foo").toResponse();
+
+        assertThat(response.getStatusInfo()).isEqualTo(INTERNAL_SERVER_ERROR);
+        assertThat(response.getEntity()).isInstanceOf(InternalServerError.class);
+        assertThat(response.getMediaType()).isEqualTo(APPLICATION_PROBLEM_JSON_TYPE);
+    }
+
     @Test
     public void shouldExtractFromException() {
         FooProblem in = new FooProblem();
@@ -209,6 +406,51 @@ public class ProblemDetailTest {
         assertThat(out).isEqualTo(in);
     }
 
+    @Test
+    public void shouldReadFromJsonWithTypeLastAndExtensionMembers() throws Exception {
+        String json = "{"
+                + "\"balance\":{\"amount\":30,\"accounts\":[\"a\",{\"b\":null}]},"
+                + "\"detail\":\"foo detail\","
+                + "\"status\":\"NOT_FOUND\","
+                + "\"instance\":\"" + instanceUrn + "\","
+                + "\"type\":\"" + problemUrn(FooProblem.class) + "\","
+                + "\"more\":[1,2,3]"
+                + "}";
+
+        ProblemDetail out = mapper.readValue(json, ProblemDetail.class);
+
+        assertThat(out).isEqualTo(new FooProblem().status(NOT_FOUND).detail("foo detail"));
+    }
+
+    @Test
+    public void shouldReadNullsFromJson() throws Exception {
+        String json = "{\"title\":null,\"detail\":null,\"instance\":null}";
+
+        ProblemDetail out = mapper.readValue(json, ProblemDetail.class);
+
+        assertThat(out.type()).isEqualTo(problemUrn(ProblemDetail.class));
+        assertThat(out.title()).isNull();
+        assertThat(out.status()).isEqualTo(BAD_REQUEST);
+        assertThat(out.detail()).isNull();
+        assertThat(out.instance()).isNull();
+    }
+
+    @Test
+    public void shouldReadListFromJson() throws Exception {
+        String json = "[" + json(new FooProblem()) + ",{\"type\":\"http://example.org\"}]";
+
+        ProblemDetail[] out = mapper.readValue(json, ProblemDetail[].class);
+
+        assertThat(out).containsExactly(new FooProblem(), new ProblemDetail().type(URI.create("http://example.org")));
+    }
+
+    @Test
+    public void shouldFailToReadStructuredFieldFromJson() throws Exception {
+        Throwable thrown = catchThrowable(() -> mapper.readValue("{\"title\":{}}", ProblemDetail.class));
+
+        assertThat(thrown).isInstanceOf(JsonMappingException.class).hasMessageContaining("title");
+    }
+
     private String json(FooProblem problem) {
         return "{"
                 + "\"type\":\"" + problemUrn(FooProblem.class) + "\","
@@ -258,6 +500,103 @@ public class ProblemDetailTest {
         new ProblemDetail().type(null).title(null).detail(null).status(null).instance(null).hashCode();
     }
 
+    @ApiResponse(status = CONFLICT, stackless = true)
+    public static class StacklessProblem extends ProblemDetail {}
+
+    @Test
+    public void shouldConvertStacklessProblemToStacklessWebException() {
+        ProblemDetail problem = new StacklessProblem().detail("foo");
+
+        WebException webException = problem.toWebException();
+
+        assertThat(webException).isInstanceOf(StacklessWebException.class)
+                .isInstanceOf(WebApplicationApplicationException.class);
+        assertThat(webException.getStackTrace()).isEmpty();
+        assertThat(webException.getMessage()).isEqualTo("HTTP 409 Conflict");
+        assertThat(ProblemDetail.of(webException)).isSameAs(problem);
+    }
+
+    @Test
+    public void shouldBuildAndLogResponseOfStacklessWebExceptionLazily() {
+        ProblemDetail problem = new StacklessProblem().detail("foo");
+        WebException webException = problem.toWebException();
+        verify(logger, never()).info("{}", problem);
+
+        Response response = webException.getResponse();
+
+        verify(logger).info("{}", problem);
+        assertThat(response.getStatusInfo()).isEqualTo(CONFLICT);
+        assertThat(response.getEntity()).isSameAs(problem);
+        assertThat(webException.getResponse()).isSameAs(response);
+    }
+
+    @Test
+    public void shouldNotConvertStacklessServerErrorToStacklessWebException() {
+        @ApiResponse(status = BAD_GATEWAY, stackless = true)
+        class StacklessServerProblem extends ProblemDetail {}
+
+        WebException webException = new StacklessServerProblem().toWebException();
+
+        assertThat(webException).isNotInstanceOf(StacklessWebException.class);
+        assertThat(webException.getStackTrace()).isNotEmpty();
+    }
+
+    @Test
+    public void shouldResolveLoggerOncePerClass() {
+        AtomicInteger calls = new AtomicInteger();
+        LOGGER = t -> {
+            calls.incrementAndGet();
+            return logger;
+        };
+
+        new FooProblem().log();
+        new FooProblem().log();
+        new NotFound().log();
+
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldSuppressLoggingByPolicy() {
+        LOG_POLICY = new SampledLogPolicy(2);
+        ProblemDetail first = new FooProblem().detail("1");
+        ProblemDetail second = new FooProblem().detail("2");
+        ProblemDetail third = new InternalServerError().detail("3");
+        ProblemDetail fourth = new InternalServerError().detail("4");
+        ProblemDetail fifth = new InternalServerError().detail("5");
+
+        first.log();
+        second.log();
+        third.log();
+        fourth.log();
+        fifth.log();
+
+        verify(logger).info("{}", first);
+        verify(logger).error("{}", third);
+        verify(logger).error("{} (and {} suppressed before)", fifth, 1L);
+        verifyNoMoreInteractions(logger);
+    }
+
+    @Test
+    public void shouldLogDrainedSuppressedCounts() {
+        LOG_POLICY = new ProblemLogPolicy() {
+            @Override
+            public long admit(ProblemDetail problem) {
+                return SUPPRESS;
+            }
+
+            @Override
+            public Map<Object, Long> drainSuppressed() {
+                return singletonMap(NotFound.class, 3L);
+            }
+        };
+
+        new FooProblem().log();
+
+        verify(logger).warn("{} problem details of {} suppressed", 3L, NotFound.class);
+        verifyNoMoreInteractions(logger);
+    }
+
     @Test
     public void shouldLogWhenBuildingResponse() {
         ProblemDetail problem = new FooProblem().detail("foo");
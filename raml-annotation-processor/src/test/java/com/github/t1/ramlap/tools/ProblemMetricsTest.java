@@ -0,0 +1,165 @@
+package com.github.t1.ramlap.tools;
+
+import com.github.t1.ramlap.tools.ProblemDetail.*;
+import com.github.t1.testtools.MementoRule;
+import org.junit.*;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+
+import static com.github.t1.ramlap.tools.ProblemDetail.*;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class ProblemMetricsTest {
+    private final ProblemMetrics metrics = new ProblemMetrics();
+
+    @Rule
+    public final MementoRule<ProblemMetrics> metricsMemento =
+            new MementoRule<>(() -> METRICS, v -> METRICS = v, metrics);
+
+    private String key(int status, Class<? extends ProblemDetail> type) {
+        return status + " " + URN_PROBLEM_JAVA_PREFIX + type.getName();
+    }
+
+    @Test
+    public void shouldCountByTypeAndStatus() {
+        metrics.count(new NotFound());
+        metrics.count(new NotFound());
+        metrics.count(new NotFound().status(GONE));
+        metrics.count(new BadRequest());
+
+        assertThat(metrics.getCount(new NotFound())).isEqualTo(2);
+        assertThat(metrics.getCount(new NotFound().status(GONE))).isEqualTo(1);
+        assertThat(metrics.getCount(new BadRequest())).isEqualTo(1);
+        assertThat(metrics.getCount(new Unauthorized())).isEqualTo(0);
+        assertThat(metrics.getCounts()).containsOnly(
+                entry(key(400, BadRequest.class), 1L),
+                entry(key(404, NotFound.class), 2L),
+                entry(key(410, NotFound.class), 1L));
+        assertThat(metrics.getTotal()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldCountProblemWithoutTypeOrStatus() {
+        metrics.count(new NotFound().type(null).status(null));
+
+        assertThat(metrics.getCounts()).containsOnly(entry("0 " + NotFound.class.getName(), 1L));
+    }
+
+    @Test
+    public void shouldReset() {
+        metrics.count(new NotFound());
+
+        metrics.reset();
+
+        assertThat(metrics.getCounts()).isEmpty();
+    }
+
+    @Test
+    public void shouldNotCountWhenDisabled() {
+        ProblemMetrics disabled = ProblemMetrics.DISABLED;
+
+        disabled.count(new NotFound());
+
+        assertThat(disabled.isEnabled()).isFalse();
+        assertThat(disabled.getCounts()).isEmpty();
+    }
+
+    @Test
+    public void shouldCountTypesBeyondMaxAsOther() {
+        for (int i = 0; i < ProblemMetrics.MAX_TYPES + 10; i++)
+            metrics.count(new NotFound().type(URI.create("urn:test:" + i)));
+
+        assertThat(metrics.getCounts())
+                .hasSize(ProblemMetrics.MAX_TYPES + 1)
+                .contains(entry("404 urn:test:0", 1L), entry("404 " + ProblemMetrics.OTHER_TYPES, 10L))
+                .doesNotContainKey("404 urn:test:" + ProblemMetrics.MAX_TYPES);
+        assertThat(metrics.getTotal()).isEqualTo(ProblemMetrics.MAX_TYPES + 10);
+    }
+
+    @Test
+    public void shouldCountResponses() {
+        new ProblemDetail().type(URI.create("http://example.org/foo")).toResponse();
+
+        assertThat(metrics.getCounts()).containsOnly(entry("400 http://example.org/foo", 1L));
+    }
+
+    @Test
+    public void shouldExposeAsMBean() throws Exception {
+        metrics.count(new NotFound());
+        metrics.register();
+        try {
+            Object total = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName(ProblemMetrics.OBJECT_NAME), "Total");
+
+            assertThat(total).isEqualTo(1L);
+        } finally {
+            metrics.unregister();
+        }
+    }
+
+    @Test
+    public void shouldExposeCountsAsMBean() throws Exception {
+        metrics.count(new NotFound());
+        metrics.register();
+        try {
+            Object counts = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName(ProblemMetrics.OBJECT_NAME), "Counts");
+
+            assertThat(counts).isInstanceOf(TabularData.class);
+            assertThat(((TabularData) counts).size()).isEqualTo(1);
+        } finally {
+            metrics.unregister();
+        }
+    }
+
+    @Test
+    public void shouldRegisterIdempotently() throws Exception {
+        metrics.register();
+        try {
+            metrics.register();
+
+            assertThat(ManagementFactory.getPlatformMBeanServer()
+                    .isRegistered(new ObjectName(ProblemMetrics.OBJECT_NAME))).isTrue();
+        } finally {
+            metrics.unregister();
+        }
+        assertThat(ManagementFactory.getPlatformMBeanServer()
+                .isRegistered(new ObjectName(ProblemMetrics.OBJECT_NAME))).isFalse();
+    }
+
+    @Test
+    public void shouldRegisterSeveralMetricsWithNames() throws Exception {
+        ProblemMetrics other = new ProblemMetrics();
+        metrics.count(new NotFound());
+        metrics.register("foo");
+        other.register("bar");
+        try {
+            Object total = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName(ProblemMetrics.OBJECT_NAME + ",name=\"foo\""), "Total");
+
+            assertThat(total).isEqualTo(1L);
+            assertThat(ManagementFactory.getPlatformMBeanServer()
+                    .isRegistered(new ObjectName(ProblemMetrics.OBJECT_NAME + ",name=\"bar\""))).isTrue();
+        } finally {
+            metrics.unregister();
+            other.unregister();
+        }
+    }
+
+    @Test
+    public void shouldFailToRegisterOtherMetricsUnderSameName() {
+        ProblemMetrics other = new ProblemMetrics();
+        metrics.register();
+        try {
+            Throwable thrown = catchThrowable(other::register);
+
+            assertThat(thrown).isInstanceOf(RuntimeException.class).hasMessageContaining("different name");
+        } finally {
+            metrics.unregister();
+        }
+    }
+}
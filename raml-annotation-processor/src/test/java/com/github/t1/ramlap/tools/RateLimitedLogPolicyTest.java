@@ -0,0 +1,97 @@
+package com.github.t1.ramlap.tools;
+
+import com.github.t1.ramlap.tools.ProblemDetail.NotFound;
+import org.junit.Test;
+
+import java.net.URI;
+
+import static com.github.t1.ramlap.tools.ProblemLogPolicy.*;
+import static java.util.Collections.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class RateLimitedLogPolicyTest {
+    private long nanos = 0;
+    private final RateLimitedLogPolicy policy = new RateLimitedLogPolicy(2, 3, () -> nanos);
+
+    private final ProblemDetail problem = new NotFound();
+
+    @Test
+    public void shouldAdmitBurst() {
+        assertThat(policy.admit(problem)).isEqualTo(0);
+        assertThat(policy.admit(problem)).isEqualTo(0);
+        assertThat(policy.admit(problem)).isEqualTo(0);
+        assertThat(policy.admit(problem)).isEqualTo(SUPPRESS);
+    }
+
+    @Test
+    public void shouldRefillAndReportSuppressed() {
+        for (int i = 0; i < 3; i++)
+            policy.admit(problem);
+        policy.admit(problem);
+        policy.admit(problem);
+
+        nanos += 500_000_000L;
+
+        assertThat(policy.admit(problem)).isEqualTo(2);
+        assertThat(policy.admit(problem)).isEqualTo(SUPPRESS);
+    }
+
+    @Test
+    public void shouldNotRefillMoreThanBurst() {
+        nanos += 60_000_000_000L;
+
+        for (int i = 0; i < 3; i++)
+            assertThat(policy.admit(problem)).isEqualTo(0);
+        assertThat(policy.admit(problem)).isEqualTo(SUPPRESS);
+    }
+
+    @Test
+    public void shouldLimitKindsSeparately() {
+        for (int i = 0; i < 3; i++)
+            policy.admit(problem);
+
+        assertThat(policy.admit(new ProblemDetail.BadRequest())).isEqualTo(0);
+        assertThat(policy.admit(problem)).isEqualTo(SUPPRESS);
+    }
+
+    @Test
+    public void shouldRejectInvalidArguments() {
+        assertThatThrownBy(() -> new RateLimitedLogPolicy(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RateLimitedLogPolicy(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldDrainSuppressedOfIdleKindsAfterBurstRefill() {
+        for (int i = 0; i < 5; i++)
+            policy.admit(problem);
+
+        assertThat(policy.drainSuppressed()).isEmpty();
+        nanos += 1_500_000_000L;
+
+        assertThat(policy.drainSuppressed()).isEqualTo(singletonMap(problem.type(), 2L));
+        assertThat(policy.drainSuppressed()).isEmpty();
+        assertThat(policy.kinds()).isEqualTo(0);
+        assertThat(policy.admit(problem)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotDrainActiveKinds() {
+        for (int i = 0; i < 5; i++)
+            policy.admit(problem);
+        nanos += 1_000_000_000L;
+        policy.admit(problem);
+        policy.admit(problem);
+        nanos += 500_000_000L;
+
+        assertThat(policy.drainSuppressed()).isEmpty();
+        assertThat(policy.kinds()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldBoundKinds() {
+        for (int i = 0; i < RateLimitedLogPolicy.MAX_KINDS + 10; i++)
+            policy.admit(new ProblemDetail().type(URI.create("urn:problem:test:" + i)));
+
+        assertThat(policy.kinds()).isEqualTo(RateLimitedLogPolicy.MAX_KINDS + 1);
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.t1.ramlap.tools;
+
+import com.github.t1.ramlap.tools.ProblemDetail.*;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Map;
+
+import static com.github.t1.ramlap.tools.ProblemLogPolicy.*;
+import static java.util.Collections.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class SampledLogPolicyTest {
+    private final SampledLogPolicy policy = new SampledLogPolicy(3);
+
+    @Test
+    public void shouldAdmitFirstAndEveryNth() {
+        ProblemDetail problem = new NotFound();
+
+        assertThat(policy.admit(problem)).isEqualTo(0);
+        assertThat(policy.admit(problem)).isEqualTo(SUPPRESS);
+        assertThat(policy.admit(problem)).isEqualTo(SUPPRESS);
+        assertThat(policy.admit(problem)).isEqualTo(2);
+        assertThat(policy.admit(problem)).isEqualTo(SUPPRESS);
+    }
+
+    @Test
+    public void shouldSampleKindsSeparately() {
+        policy.admit(new NotFound());
+
+        assertThat(policy.admit(new BadRequest())).isEqualTo(0);
+        assertThat(policy.admit(new NotFound())).isEqualTo(SUPPRESS);
+    }
+
+    @Test
+    public void shouldAdmitAllWithNOne() {
+        SampledLogPolicy all = new SampledLogPolicy(1);
+
+        assertThat(all.admit(new NotFound())).isEqualTo(0);
+        assertThat(all.admit(new NotFound())).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldDrainSuppressedOfIdleKinds() {
+        ProblemDetail idle = new NotFound();
+        policy.admit(idle);
+        policy.admit(idle);
+        ProblemDetail busy = new BadRequest();
+
+        for (int i = 0; i < 2 * SampledLogPolicy.SWEEP_INTERVAL; i++) {
+            policy.admit(busy);
+            Map<Object, Long> drained = policy.drainSuppressed();
+            if (!drained.isEmpty()) {
+                assertThat(drained).isEqualTo(singletonMap(idle.type(), 1L));
+                assertThat(policy.admit(idle)).isEqualTo(0);
+                return;
+            }
+        }
+        fail("expected the suppressed count of the idle kind to be drained");
+    }
+
+    @Test
+    public void shouldBoundKinds() {
+        for (int i = 0; i < SampledLogPolicy.MAX_KINDS + 10; i++)
+            policy.admit(new ProblemDetail().type(URI.create("urn:problem:test:" + i)));
+
+        assertThat(policy.kinds()).isEqualTo(SampledLogPolicy.MAX_KINDS + 1);
+    }
+}
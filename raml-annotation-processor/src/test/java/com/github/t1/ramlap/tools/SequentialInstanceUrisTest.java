@@ -0,0 +1,59 @@
+package com.github.t1.ramlap.tools;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.github.t1.ramlap.tools.ProblemDetail.*;
+import static com.github.t1.ramlap.tools.SequentialInstanceUris.*;
+import static org.assertj.core.api.Assertions.*;
+
+public class SequentialInstanceUrisTest {
+    private final SequentialInstanceUris uris = new SequentialInstanceUris("node");
+
+    @Test
+    public void shouldCreateSequentialUris() {
+        assertThat(uris.apply(ProblemDetail.class)).isEqualTo(URI.create(URN_PROBLEM_INSTANCE_PREFIX + "node-0"));
+        assertThat(uris.apply(ProblemDetail.class)).isEqualTo(URI.create(URN_PROBLEM_INSTANCE_PREFIX + "node-1"));
+    }
+
+    @Test
+    public void shouldTakeNextBlockWhenExhausted() {
+        for (int i = 0; i < BLOCK_SIZE; i++)
+            uris.next();
+
+        assertThat(uris.next()).isEqualTo(BLOCK_SIZE);
+    }
+
+    @Test
+    public void shouldUseRandomNode() {
+        String one = new SequentialInstanceUris().apply(ProblemDetail.class).toString();
+        String two = new SequentialInstanceUris().apply(ProblemDetail.class).toString();
+
+        assertThat(one).startsWith(URN_PROBLEM_INSTANCE_PREFIX).isNotEqualTo(two);
+    }
+
+    @Test
+    public void shouldCreateUniqueUrisInParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++)
+                futures.add(executor.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < 3 * BLOCK_SIZE; i++)
+                        ids.add(uris.next());
+                    return ids;
+                }));
+            Set<Long> all = new HashSet<>();
+            for (Future<List<Long>> future : futures)
+                all.addAll(future.get());
+
+            assertThat(all).hasSize(4 * 3 * BLOCK_SIZE);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}